@@ -0,0 +1,35 @@
+package com.dema.riceKrispies;
+
+import com.dema.riceKrispies.service.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil("zAHi9DlQ+Vlo2opwSOhvRXP7WS6wTB/VjBK4aGeTZik=");
+        token = jwtUtil.generateToken(42, "user42@example.com");
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(42, "user42@example.com");
+    }
+
+    @Benchmark
+    public Jws<Claims> validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+}
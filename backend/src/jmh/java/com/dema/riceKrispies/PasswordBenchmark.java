@@ -0,0 +1,61 @@
+package com.dema.riceKrispies;
+
+import com.dema.riceKrispies.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registration-time password checks: the pattern validation in {@code UserService} and
+ * BCrypt at the configured cost (security.bcrypt.strength, 10 by default).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordBenchmark {
+    @Param("10")
+    public int strength;
+
+    private UserService userService;
+    private BCryptPasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void setUp() {
+        // validateRegistration touches none of the collaborators.
+        userService = new UserService(null, null, null, null, null, null);
+        encoder = new BCryptPasswordEncoder(strength);
+        hash = encoder.encode("Crispy-Rice-99");
+    }
+
+    @Benchmark
+    public void validateAcceptedPassword() {
+        userService.validateRegistration("user@example.com", "Crispy-Rice-99");
+    }
+
+    @Benchmark
+    public Object validateRejectedPassword() {
+        try {
+            userService.validateRegistration("user@example.com", "crispyrice99crispyrice99crispyrice99");
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String bcryptEncode() {
+        return encoder.encode("Crispy-Rice-99");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean bcryptMatches() {
+        return encoder.matches("Crispy-Rice-99", hash);
+    }
+}
@@ -0,0 +1,75 @@
+package com.dema.riceKrispies;
+
+import com.dema.riceKrispies.config.RateLimitProperties;
+import com.dema.riceKrispies.exception.RateLimitExceededException;
+import com.dema.riceKrispies.service.RateLimiterService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code RateLimiterService} checks with room to spare, at the limit, and under contention
+ * on one key versus one key per thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+    private RateLimiterService allowing;
+    private RateLimiterService rejecting;
+
+    @Setup
+    public void setUp() {
+        allowing = limiter(Integer.MAX_VALUE);
+        rejecting = limiter(1);
+        rejecting.checkLogin("exhausted");
+    }
+
+    private static RateLimiterService limiter(int capacity) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setEndpoints(Map.of(RateLimitProperties.LOGIN,
+                new RateLimitProperties.Limit(capacity, Duration.ofDays(365))));
+        return new RateLimiterService(properties, Optional.empty(), new SimpleMeterRegistry());
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadKey {
+        private static final AtomicInteger NEXT = new AtomicInteger();
+        final String ip = "10.0.0." + NEXT.incrementAndGet();
+    }
+
+    @Benchmark
+    public void allowed() {
+        allowing.checkLogin("10.0.0.1");
+    }
+
+    @Benchmark
+    public void rejected(Blackhole blackhole) {
+        try {
+            rejecting.checkLogin("exhausted");
+        } catch (RateLimitExceededException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void contendedSameKey() {
+        allowing.checkLogin("10.0.0.1");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void contendedKeyPerThread(ThreadKey key) {
+        allowing.checkLogin(key.ip);
+    }
+}
@@ -2,9 +2,11 @@ package com.dema.riceKrispies;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import io.github.cdimascio.dotenv.Dotenv;
 
 @SpringBootApplication
+@EnableScheduling
 public class RiceKrispiesApplication {
 
 	public static void main(String[] args) {
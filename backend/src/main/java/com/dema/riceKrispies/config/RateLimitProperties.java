@@ -0,0 +1,40 @@
+package com.dema.riceKrispies.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-endpoint token buckets: each key may burst up to {@code capacity} requests and
+ * regains the whole allowance over {@code period}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+    public static final String REGISTRATION = "registration";
+    public static final String LOGIN = "login";
+    public static final String FETCH_KEYS = "fetch-keys";
+
+    // Once this many keys are tracked per endpoint, new keys evict the least loaded ones.
+    private int maxTrackedKeys = 100_000;
+    private long sweepIntervalMs = 60_000;
+    private Map<String, Limit> endpoints = new HashMap<>(Map.of(
+            REGISTRATION, new Limit(5, Duration.ofHours(24)),
+            LOGIN, new Limit(50, Duration.ofHours(24)),
+            FETCH_KEYS, new Limit(50, Duration.ofHours(24))));
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+        private int capacity;
+        private Duration period;
+    }
+}
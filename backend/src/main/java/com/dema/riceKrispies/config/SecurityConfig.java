@@ -11,6 +11,8 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.header.writers.StaticHeadersWriter;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
 
 @Configuration
 @EnableWebSecurity
@@ -18,6 +20,13 @@ public class SecurityConfig {
     @Value("${cors.allowed-origins}")
     private String[] allowedOrigins;
 
+    // Unset, or equal to server.port, means the actuator shares the public port and the scrape is refused.
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
+    @Value("${server.port:8080}")
+    private int serverPort;
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http, JwtAuthenticationFilter jwtFilter) throws Exception {
         http
@@ -41,8 +50,17 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.OPTIONS).permitAll()
                 // Allow public endpoints
                 .requestMatchers("/", "/users/register/", "/users/login/").permitAll()
+                .requestMatchers(HttpMethod.GET, "/stats/keys/").permitAll()
+                .requestMatchers(HttpMethod.GET, "/actuator/health").permitAll()
+                // Prometheus scrapes are only answered on the internal management port
+                .requestMatchers(new AndRequestMatcher(
+                        request -> managementPort != serverPort && request.getLocalPort() == managementPort,
+                        PathPatternRequestMatcher.withDefaults().matcher(HttpMethod.GET, "/actuator/prometheus"))).permitAll()
                 // Require authentication for protected endpoints
-                .requestMatchers(HttpMethod.POST, "/fetchKeys/").authenticated()
+                .requestMatchers(HttpMethod.POST, "/fetchKeys/", "/fetchKeys/bulk/").authenticated()
+                // Inventory management is limited to accounts with users.is_admin set
+                .requestMatchers(HttpMethod.POST, "/admin/keys/import/").hasRole("ADMIN")
+                .requestMatchers(HttpMethod.GET, "/admin/keys/audit/", "/admin/keys/export/").hasRole("ADMIN")
                 // Deny everything else
                 .anyRequest().denyAll()
             )
@@ -0,0 +1,45 @@
+package com.dema.riceKrispies.config;
+
+import com.dema.riceKrispies.service.RequestTimings;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Optional;
+
+/**
+ * Ends the handler phase and adds the Server-Timing header right before the body is
+ * serialized, since headers cannot be added once the body has started. Serialization
+ * time itself therefore only appears in the slow-request log.
+ */
+@ControllerAdvice
+public class ServerTimingAdvice implements ResponseBodyAdvice<Object> {
+    private final boolean header;
+
+    public ServerTimingAdvice(Optional<ServerTimingFilter> serverTimingFilter) {
+        this.header = serverTimingFilter.map(ServerTimingFilter::writesHeader).orElse(false);
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestTimings timings = RequestTimings.current();
+        if (timings != null) {
+            timings.markHandled();
+            if (header && timings.claimHeader()) {
+                response.getHeaders().add(ServerTimingFilter.HEADER, timings.serverTiming());
+            }
+        }
+        return body;
+    }
+}
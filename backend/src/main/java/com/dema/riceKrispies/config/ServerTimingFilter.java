@@ -0,0 +1,73 @@
+package com.dema.riceKrispies.config;
+
+import com.dema.riceKrispies.service.RequestTimings;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens a {@link RequestTimings} holder around the whole request, ahead of Spring
+ * Security so JWT checks are included. The Server-Timing header is normally added by
+ * {@link ServerTimingAdvice} just before the body is written; responses that never reach
+ * a controller (401/403 from the security chain) get it here if still possible. Requests
+ * slower than server-timing.slow-threshold-ms are logged with their phases, sampled at
+ * server-timing.slow-log-sample-rate so a slow database cannot flood the log.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "server-timing.enabled", havingValue = "true", matchIfMissing = true)
+public class ServerTimingFilter extends OncePerRequestFilter {
+    public static final String HEADER = "Server-Timing";
+
+    private final boolean header;
+    private final long slowThresholdNanos;
+    private final double slowLogSampleRate;
+
+    public ServerTimingFilter(@Value("${server-timing.header:true}") boolean header,
+                              @Value("${server-timing.slow-threshold-ms:500}") long slowThresholdMillis,
+                              @Value("${server-timing.slow-log-sample-rate:0.1}") double slowLogSampleRate) {
+        this.header = header;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.slowLogSampleRate = slowLogSampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestTimings timings = RequestTimings.open();
+        try {
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                if (header && !response.isCommitted() && timings.claimHeader()) {
+                    timings.markHandled();
+                    response.addHeader(HEADER, timings.serverTiming());
+                }
+            }
+            long total = timings.finish();
+            if (total >= slowThresholdNanos && ThreadLocalRandom.current().nextDouble() < slowLogSampleRate) {
+                log.warn("Slow request {} {} -> {} in {} ms: {}", request.getMethod(), request.getRequestURI(),
+                        response.getStatus(), TimeUnit.NANOSECONDS.toMillis(total), timings.serverTiming());
+            }
+        } finally {
+            RequestTimings.close(timings);
+        }
+    }
+
+    boolean writesHeader() {
+        return header;
+    }
+}
@@ -0,0 +1,72 @@
+package com.dema.riceKrispies.config;
+
+import com.dema.riceKrispies.service.RequestTimings;
+import com.dema.riceKrispies.service.RequestTimings.Phase;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Times pool checkouts and commits for {@link RequestTimings}. Connections handed out
+ * outside a timed request (schedulers, claim dispatchers) are returned unwrapped.
+ */
+@Configuration
+@ConditionalOnProperty(name = "server-timing.enabled", havingValue = "true", matchIfMissing = true)
+public class TimedDataSourceConfig {
+
+    @Bean
+    static BeanPostProcessor timedDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof TimedDataSource)
+                        ? new TimedDataSource(dataSource)
+                        : bean;
+            }
+        };
+    }
+
+    static final class TimedDataSource extends DelegatingDataSource {
+        TimedDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (RequestTimings.current() == null) {
+                return super.getConnection();
+            }
+            long start = System.nanoTime();
+            Connection connection = super.getConnection();
+            RequestTimings.record(Phase.DB_ACQUIRE, start);
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new CommitTimer(connection));
+        }
+    }
+
+    private record CommitTimer(Connection target) implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            long start = System.nanoTime();
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if ("commit".equals(method.getName())) {
+                    RequestTimings.record(Phase.COMMIT, start);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.dema.riceKrispies.controller;
+
+import com.dema.riceKrispies.dto.KeyAuditResponse;
+import com.dema.riceKrispies.dto.KeyImportResponse;
+import com.dema.riceKrispies.model.ProductKeys;
+import com.dema.riceKrispies.repository.KeyLedgerRepository;
+import com.dema.riceKrispies.service.KeyImportService;
+import com.dema.riceKrispies.service.KeyLedgerExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+public class AdminController {
+    private final KeyImportService keyImportService;
+    private final KeyLedgerRepository keyLedgerRepository;
+    private final KeyLedgerExportService keyLedgerExportService;
+
+    // The body is one key per line and is read straight off the socket, never buffered whole.
+    @PostMapping(value = "/keys/import/", consumes = "text/plain")
+    public ResponseEntity<?> importKeys(HttpServletRequest httpRequest) throws IOException {
+        KeyImportResponse response = keyImportService.importKeys(httpRequest.getInputStream());
+        return ResponseEntity.ok(response);
+    }
+
+    // Looks burns up by key or by user, across both the hot table and the archive. Both return
+    // a list: a key burned twice has an entry in each table.
+    @GetMapping("/keys/audit/")
+    public ResponseEntity<?> auditKeys(@RequestParam(required = false) String key,
+                                       @RequestParam(required = false) Integer userId) {
+        if (key != null) {
+            return ResponseEntity.ok(keyLedgerRepository.findByKeyOrderByBurnedAt(ProductKeys.parse(key)).stream()
+                    .map(KeyAuditResponse::of)
+                    .toList());
+        }
+        if (userId != null) {
+            return ResponseEntity.ok(keyLedgerRepository.findByBurnedByOrderByBurnedAt(userId).stream()
+                    .map(KeyAuditResponse::of)
+                    .toList());
+        }
+        throw new IllegalArgumentException("invalid request");
+    }
+
+    // Written straight to the response as rows are read; no Content-Length, so it goes out chunked.
+    @GetMapping("/keys/export/")
+    public void exportKeys(@RequestParam(defaultValue = "csv") String format,
+                           @RequestParam(required = false) Integer userId,
+                           @RequestParam(required = false) String from,
+                           @RequestParam(required = false) String to,
+                           HttpServletResponse response) throws IOException {
+        KeyLedgerExportService.Format exportFormat = parseFormat(format);
+        Instant fromInstant = parseInstant(from);
+        Instant toInstant = parseInstant(to);
+        response.setContentType(exportFormat.contentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"burned-keys." + exportFormat.name().toLowerCase(Locale.ROOT) + "\"");
+        keyLedgerExportService.export(exportFormat, userId, fromInstant, toInstant, response.getOutputStream());
+    }
+
+    private static KeyLedgerExportService.Format parseFormat(String format) {
+        try {
+            return KeyLedgerExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid request");
+        }
+    }
+
+    private static Instant parseInstant(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("invalid request");
+        }
+    }
+}
@@ -2,26 +2,51 @@ package com.dema.riceKrispies.controller;
 
 import com.dema.riceKrispies.dto.FetchKeyRequest;
 import com.dema.riceKrispies.dto.FetchKeyResponse;
+import com.dema.riceKrispies.dto.FetchKeysRequest;
+import com.dema.riceKrispies.dto.FetchKeysResponse;
+import com.dema.riceKrispies.security.AuthenticatedUser;
 import com.dema.riceKrispies.service.KeyService;
 import com.dema.riceKrispies.service.RateLimiterService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import jakarta.servlet.http.HttpServletRequest;
-
 @RestController
 @RequiredArgsConstructor
 public class KeyController {
     private final KeyService keyService;
     private final RateLimiterService rateLimiterService;
 
+    // Keys always go to the user in the JWT; a body userId is only accepted if it matches.
+    // The rate limit is charged only when a key is claimed, not when a retry is replayed.
     @PostMapping("/fetchKeys/")
-    public ResponseEntity<?> fetchKey(@RequestBody FetchKeyRequest request, HttpServletRequest httpRequest) {
-        String ip = httpRequest.getRemoteAddr();
-        rateLimiterService.checkFetchKeys(ip);
-        FetchKeyResponse response = keyService.fetchAndBurnKey(request.getUserId());
+    public ResponseEntity<?> fetchKey(@RequestBody FetchKeyRequest request,
+                                      @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                      @AuthenticationPrincipal AuthenticatedUser user,
+                                      HttpServletRequest httpRequest) {
+        Integer userId = requireSameUser(user, request.getUserId());
+        FetchKeyResponse response = keyService.fetchAndBurnKey(userId, httpRequest.getRemoteAddr(), idempotencyKey,
+                () -> rateLimiterService.checkFetchKeys(userId));
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/fetchKeys/bulk/")
+    public ResponseEntity<?> fetchKeys(@RequestBody FetchKeysRequest request,
+                                       @AuthenticationPrincipal AuthenticatedUser user,
+                                       HttpServletRequest httpRequest) {
+        Integer userId = requireSameUser(user, request.getUserId());
+        keyService.validateBulkCount(request.getCount());
+        rateLimiterService.checkFetchKeys(userId, request.getCount());
+        FetchKeysResponse response = keyService.fetchAndBurnKeys(userId, request.getCount(), httpRequest.getRemoteAddr());
         return ResponseEntity.ok(response);
     }
-} 
\ No newline at end of file
+
+    private static Integer requireSameUser(AuthenticatedUser user, Integer requestedUserId) {
+        if (user.userId() == null || (requestedUserId != null && !requestedUserId.equals(user.userId()))) {
+            throw new IllegalArgumentException("invalid request");
+        }
+        return user.userId();
+    }
+}
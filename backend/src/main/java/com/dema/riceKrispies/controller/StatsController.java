@@ -0,0 +1,19 @@
+package com.dema.riceKrispies.controller;
+
+import com.dema.riceKrispies.service.KeyInventory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/stats")
+@RequiredArgsConstructor
+public class StatsController {
+    private final KeyInventory keyInventory;
+
+    // Served from memory; never queries all_Keys.
+    @GetMapping("/keys/")
+    public ResponseEntity<?> keyStats() {
+        return ResponseEntity.ok(keyInventory.snapshot());
+    }
+}
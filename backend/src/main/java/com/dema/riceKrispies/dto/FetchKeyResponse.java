@@ -1,11 +1,19 @@
 package com.dema.riceKrispies.dto;
 
+import com.dema.riceKrispies.model.ProductKeys;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.util.UUID;
+
 @Data
 @AllArgsConstructor
 public class FetchKeyResponse {
     private String key;
     private Integer userId;
-} 
\ No newline at end of file
+
+    // Keys are stored as uuids; this is where they get their dashed form back.
+    public static FetchKeyResponse of(UUID key, Integer userId) {
+        return new FetchKeyResponse(ProductKeys.format(key), userId);
+    }
+}
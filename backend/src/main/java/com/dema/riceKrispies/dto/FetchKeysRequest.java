@@ -0,0 +1,9 @@
+package com.dema.riceKrispies.dto;
+
+import lombok.Data;
+
+@Data
+public class FetchKeysRequest {
+    private Integer userId;
+    private Integer count;
+}
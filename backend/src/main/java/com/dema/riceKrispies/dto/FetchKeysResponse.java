@@ -0,0 +1,19 @@
+package com.dema.riceKrispies.dto;
+
+import com.dema.riceKrispies.model.ProductKeys;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class FetchKeysResponse {
+    private List<String> keys;
+    private Integer userId;
+
+    public static FetchKeysResponse of(List<UUID> keys, Integer userId) {
+        return new FetchKeysResponse(keys.stream().map(ProductKeys::format).toList(), userId);
+    }
+}
@@ -0,0 +1,23 @@
+package com.dema.riceKrispies.dto;
+
+import com.dema.riceKrispies.model.KeyLedgerEntry;
+import com.dema.riceKrispies.model.ProductKeys;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+public class KeyAuditResponse {
+    private String key;
+    private Integer burnedBy;
+    private Instant burnedAt;
+    // all_keys or burned_keys
+    private String source;
+
+    public static KeyAuditResponse of(KeyLedgerEntry entry) {
+        return new KeyAuditResponse(ProductKeys.format(entry.getKey()), entry.getBurnedBy(), entry.getBurnedAt(),
+                entry.getSource());
+    }
+}
@@ -0,0 +1,15 @@
+package com.dema.riceKrispies.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class KeyImportResponse {
+    private long received;
+    private long inserted;
+    private long duplicates;
+    private long rejected;
+    private long elapsedMillis;
+    private long keysPerSecond;
+}
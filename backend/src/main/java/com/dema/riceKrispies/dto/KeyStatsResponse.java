@@ -0,0 +1,15 @@
+package com.dema.riceKrispies.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+public class KeyStatsResponse {
+    private long available;
+    private long burned;
+    private boolean soldOut;
+    private Instant reconciledAt;
+}
@@ -0,0 +1,12 @@
+package com.dema.riceKrispies.exception;
+
+/**
+ * Base for expected outcomes (sold out, rate limited, bad credentials...) that are
+ * turned into a status code by {@link GlobalExceptionHandler}. They are thrown on hot
+ * paths under load, so no stack trace is captured.
+ */
+public abstract class DomainException extends RuntimeException {
+    protected DomainException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,7 @@
+package com.dema.riceKrispies.exception;
+
+public class EmailTakenException extends DomainException {
+    public EmailTakenException() {
+        super("bad request");
+    }
+}
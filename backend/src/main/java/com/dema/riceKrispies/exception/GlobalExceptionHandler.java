@@ -1,6 +1,6 @@
 package com.dema.riceKrispies.exception;
 
-import com.dema.riceKrispies.service.RateLimiterService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -12,25 +12,48 @@ public class GlobalExceptionHandler {
     public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException ex) {
         if ("invalid registration".equals(ex.getMessage())) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("invalid registration");
-        } else if ("wrong credentials".equals(ex.getMessage())) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("wrong credentials");
+        } else if ("invalid request".equals(ex.getMessage())) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("invalid request");
         }
         // Fallback for other IllegalArgumentExceptions
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("invalid registration");
     }
 
-    @ExceptionHandler(RateLimiterService.RateLimitExceededException.class)
-    public ResponseEntity<String> handleRateLimit(RateLimiterService.RateLimitExceededException ex) {
+    @ExceptionHandler(WrongCredentialsException.class)
+    public ResponseEntity<String> handleWrongCredentials(WrongCredentialsException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("wrong credentials");
+    }
+
+    @ExceptionHandler(EmailTakenException.class)
+    public ResponseEntity<String> handleEmailTaken(EmailTakenException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("bad request");
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<String> handleRateLimit(RateLimitExceededException ex) {
         return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body("rate limit exceeded");
     }
 
+    @ExceptionHandler(SoldOutException.class)
+    public ResponseEntity<String> handleSoldOut(SoldOutException ex) {
+        return ResponseEntity.status(HttpStatus.GONE).body("sold out");
+    }
+
+    @ExceptionHandler(KeyQuotaExceededException.class)
+    public ResponseEntity<String> handleKeyQuota(KeyQuotaExceededException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("key limit reached");
+    }
+
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<String> handleServiceBusy(ServiceBusyException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("service busy");
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<String> handleRuntime(RuntimeException ex) {
-        // Only allow the valid message for duplicate email
-        if ("bad request".equals(ex.getMessage())) {
-            return ResponseEntity.status(HttpStatus.CONFLICT).body("bad request");
-        }
-        // Fallback for other runtime exceptions
+        // Fallback for unexpected runtime exceptions
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("internal server error");
     }
-} 
\ No newline at end of file
+}
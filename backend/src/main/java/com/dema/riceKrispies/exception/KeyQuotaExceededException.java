@@ -0,0 +1,7 @@
+package com.dema.riceKrispies.exception;
+
+public class KeyQuotaExceededException extends DomainException {
+    public KeyQuotaExceededException() {
+        super("Key limit reached");
+    }
+}
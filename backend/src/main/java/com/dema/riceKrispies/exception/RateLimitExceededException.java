@@ -0,0 +1,7 @@
+package com.dema.riceKrispies.exception;
+
+public class RateLimitExceededException extends DomainException {
+    public RateLimitExceededException() {
+        super("Rate limit exceeded");
+    }
+}
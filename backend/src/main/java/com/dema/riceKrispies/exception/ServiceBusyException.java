@@ -0,0 +1,7 @@
+package com.dema.riceKrispies.exception;
+
+public class ServiceBusyException extends DomainException {
+    public ServiceBusyException() {
+        super("Service busy");
+    }
+}
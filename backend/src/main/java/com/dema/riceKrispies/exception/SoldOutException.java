@@ -0,0 +1,7 @@
+package com.dema.riceKrispies.exception;
+
+public class SoldOutException extends DomainException {
+    public SoldOutException() {
+        super("No available keys");
+    }
+}
@@ -0,0 +1,7 @@
+package com.dema.riceKrispies.exception;
+
+public class WrongCredentialsException extends DomainException {
+    public WrongCredentialsException() {
+        super("wrong credentials");
+    }
+}
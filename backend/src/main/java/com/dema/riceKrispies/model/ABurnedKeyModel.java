@@ -0,0 +1,28 @@
+package com.dema.riceKrispies.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Archived burned key. Rows are moved here from all_Keys by the KeyArchiver so the
+ * hot table only carries keys that can still be claimed.
+ */
+@Entity
+@Table(name = "burned_keys", indexes = @Index(name = "idx_burned_keys_burned_by", columnList = "burned_by"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ABurnedKeyModel {
+    @Id
+    @Column(unique = true, nullable = false)
+    private UUID key;
+
+    @Column(name = "burned_by")
+    private Integer burnedBy;
+
+    @Column(name = "burned_at", nullable = false)
+    private Instant burnedAt;
+}
@@ -3,6 +3,9 @@ package com.dema.riceKrispies.model;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.Instant;
+import java.util.UUID;
+
 @Entity
 @Table(name = "all_Keys")
 @Data
@@ -11,11 +14,21 @@ import lombok.*;
 public class AKeyModel {
     @Id
     @Column(unique = true, nullable = false)
-    private String key;
+    private UUID key;
 
     @Column(nullable = false)
     private boolean burned = false;
 
     @Column(name = "burned_by")
     private Integer burnedBy;
-} 
\ No newline at end of file
+
+    @Column(name = "burned_at")
+    private Instant burnedAt;
+
+    // Node currently holding this key in its in-memory reservoir, if any.
+    @Column(name = "reserved_by")
+    private String reservedBy;
+
+    @Column(name = "lease_expires_at")
+    private Instant leaseExpiresAt;
+}
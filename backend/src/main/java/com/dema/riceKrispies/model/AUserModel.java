@@ -25,6 +25,11 @@ public class AUserModel {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    // Read-only here: set by hand in the database, see schema.sql.
+    @Column(name = "is_admin", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "boolean NOT NULL DEFAULT false")
+    private boolean admin;
+
 } 
 
 
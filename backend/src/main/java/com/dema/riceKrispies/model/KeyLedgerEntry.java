@@ -0,0 +1,49 @@
+package com.dema.riceKrispies.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Subselect;
+import org.hibernate.annotations.Synchronize;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Read-only view of every burned key, whether it is still in all_Keys or already archived.
+ * A key burned twice is in both tables, so rows are identified by key and source table.
+ */
+@Entity
+@Immutable
+@IdClass(KeyLedgerEntry.EntryId.class)
+@Subselect("""
+        SELECT key, 'all_keys' AS source, burned_by, burned_at FROM all_keys WHERE burned = true
+        UNION ALL
+        SELECT key, 'burned_keys' AS source, burned_by, burned_at FROM burned_keys
+        """)
+@Synchronize({"all_keys", "burned_keys"})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeyLedgerEntry {
+    @Id
+    private UUID key;
+
+    @Id
+    private String source;
+
+    @Column(name = "burned_by")
+    private Integer burnedBy;
+
+    @Column(name = "burned_at")
+    private Instant burnedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class EntryId implements Serializable {
+        private UUID key;
+        private String source;
+    }
+}
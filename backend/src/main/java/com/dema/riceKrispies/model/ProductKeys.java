@@ -0,0 +1,90 @@
+package com.dema.riceKrispies.model;
+
+import java.util.UUID;
+
+/**
+ * Converts between the XXXX-XXXX-XXXX-XXXX form users see and the 16-byte uuid the
+ * database stores. Each half of the key is read as an 8-digit base-36 number
+ * (0-9 then A-Z) and placed in one 64-bit half of the uuid, so byte order matches
+ * the order of the dashed strings.
+ */
+public final class ProductKeys {
+    public static final int LENGTH = 19;
+    private static final int RADIX = 36;
+    private static final int HALF_DIGITS = 8;
+    /** 36^8, the number of distinct values one half of a key can take. */
+    public static final long HALF_BOUND = 2_821_109_907_456L;
+    private static final char[] DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+    private ProductKeys() {
+    }
+
+    public static boolean isValid(CharSequence key) {
+        if (key.length() != LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < LENGTH; i++) {
+            char c = key.charAt(i);
+            if (i % 5 == 4) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (digit(c) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static UUID parse(CharSequence key) {
+        if (!isValid(key)) {
+            throw new IllegalArgumentException("invalid request");
+        }
+        return new UUID(readHalf(key, 0), readHalf(key, 10));
+    }
+
+    public static String format(UUID key) {
+        char[] out = new char[LENGTH];
+        writeHalf(key.getMostSignificantBits(), out, 0);
+        writeHalf(key.getLeastSignificantBits(), out, 10);
+        out[4] = '-';
+        out[9] = '-';
+        out[14] = '-';
+        return new String(out);
+    }
+
+    private static long readHalf(CharSequence key, int start) {
+        long value = 0;
+        for (int i = start, digits = 0; digits < HALF_DIGITS; i++) {
+            char c = key.charAt(i);
+            if (c == '-') {
+                continue;
+            }
+            value = value * RADIX + digit(c);
+            digits++;
+        }
+        return value;
+    }
+
+    private static void writeHalf(long value, char[] out, int start) {
+        // Fill the 9 slots (8 digits + one dash) right to left, skipping the dash position.
+        int pos = start + HALF_DIGITS;
+        for (int digits = 0; digits < HALF_DIGITS; digits++, pos--) {
+            if (pos % 5 == 4) {
+                pos--;
+            }
+            out[pos] = DIGITS[(int) (value % RADIX)];
+            value /= RADIX;
+        }
+    }
+
+    private static int digit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+}
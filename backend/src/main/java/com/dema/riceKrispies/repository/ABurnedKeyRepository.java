@@ -0,0 +1,9 @@
+package com.dema.riceKrispies.repository;
+
+import com.dema.riceKrispies.model.ABurnedKeyModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.UUID;
+
+public interface ABurnedKeyRepository extends JpaRepository<ABurnedKeyModel, UUID> {
+}
@@ -2,8 +2,34 @@ package com.dema.riceKrispies.repository;
 
 import com.dema.riceKrispies.model.AKeyModel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
 import java.util.Optional;
+import java.util.UUID;
+
+public interface AKeyRepository extends JpaRepository<AKeyModel, UUID>, AKeyRepositoryCustom {
+    // Burns one unburned key in a single statement. SKIP LOCKED lets concurrent
+    // callers each take a different row instead of queueing on the same one.
+    @Transactional
+    @Query(value = """
+            UPDATE all_keys SET burned = true, burned_by = :userId, burned_at = now(), reserved_by = NULL, lease_expires_at = NULL
+            WHERE key = (
+                SELECT key FROM all_keys
+                WHERE burned = false AND (lease_expires_at IS NULL OR lease_expires_at < now())
+                LIMIT 1
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING key
+            """, nativeQuery = true)
+    Optional<UUID> claimNextKey(@Param("userId") Integer userId);
+
+    // Unlike the claims, this also sees keys that are row-locked or leased to another node.
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM all_keys WHERE burned = false)", nativeQuery = true)
+    boolean existsUnburnedKey();
+
+    long countByBurnedFalse();
 
-public interface AKeyRepository extends JpaRepository<AKeyModel, String> {
-    Optional<AKeyModel> findFirstByBurnedFalse();
-} 
\ No newline at end of file
+    long countByBurnedTrue();
+}
@@ -0,0 +1,41 @@
+package com.dema.riceKrispies.repository;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface AKeyRepositoryCustom {
+    /**
+     * Burns one key per entry of {@code userIds} in a single statement. The result has the
+     * same order as {@code userIds}, with null where the pool ran out.
+     */
+    List<UUID> claimKeysFor(List<Integer> userIds);
+
+    /**
+     * Burns up to {@code count} keys for one user in a single statement.
+     */
+    List<UUID> claimKeys(Integer userId, int count);
+
+    List<UUID> leaseKeys(String nodeId, int count, long leaseSeconds);
+
+    int renewLeases(String nodeId, long leaseSeconds);
+
+    int[] burnLeasedKeys(String nodeId, List<UUID> keys, List<Integer> userIds);
+
+    int releaseLeases(String nodeId);
+
+    /**
+     * Inserts new unburned keys, skipping any that already exist, and returns how many were added.
+     */
+    long insertKeys(List<UUID> keys);
+
+    /**
+     * Moves up to {@code batchSize} burned keys into burned_keys and returns how many moved.
+     * A key burned_keys already holds is left in all_Keys with its burned_by/burned_at.
+     */
+    int archiveBurnedKeys(int batchSize);
+
+    /**
+     * Burned keys that are in both all_Keys and burned_keys, i.e. keys that were burned twice.
+     */
+    List<UUID> findDoubleBurnedKeys(int limit);
+}
@@ -0,0 +1,157 @@
+package com.dema.riceKrispies.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+public class AKeyRepositoryImpl implements AKeyRepositoryCustom {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<UUID> claimKeysFor(List<Integer> userIds) {
+        UUID[] claimed = new UUID[userIds.size()];
+        jdbcTemplate.query("""
+                WITH picked AS (
+                    SELECT key FROM all_keys
+                    WHERE burned = false AND (lease_expires_at IS NULL OR lease_expires_at < now())
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                ), numbered AS (
+                    SELECT key, row_number() OVER () AS ord FROM picked
+                )
+                UPDATE all_keys k SET burned = true, burned_by = c.user_id, burned_at = now(), reserved_by = NULL, lease_expires_at = NULL
+                FROM numbered n
+                JOIN unnest(CAST(? AS int[])) WITH ORDINALITY AS c(user_id, ord) ON c.ord = n.ord
+                WHERE k.key = n.key
+                RETURNING k.key, c.ord
+                """, ps -> {
+            ps.setInt(1, userIds.size());
+            ps.setArray(2, ps.getConnection().createArrayOf("int4", userIds.toArray()));
+        }, rs -> {
+            claimed[(int) rs.getLong(2) - 1] = rs.getObject(1, UUID.class);
+        });
+        return Arrays.asList(claimed);
+    }
+
+    @Override
+    public List<UUID> claimKeys(Integer userId, int count) {
+        return jdbcTemplate.queryForList("""
+                UPDATE all_keys SET burned = true, burned_by = ?, burned_at = now(), reserved_by = NULL, lease_expires_at = NULL
+                WHERE key IN (
+                    SELECT key FROM all_keys
+                    WHERE burned = false AND (lease_expires_at IS NULL OR lease_expires_at < now())
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                )
+                RETURNING key
+                """, UUID.class, userId, count);
+    }
+
+    @Override
+    public List<UUID> leaseKeys(String nodeId, int count, long leaseSeconds) {
+        return jdbcTemplate.queryForList("""
+                UPDATE all_keys SET reserved_by = ?, lease_expires_at = now() + make_interval(secs => ?)
+                WHERE key IN (
+                    SELECT key FROM all_keys
+                    WHERE burned = false AND (lease_expires_at IS NULL OR lease_expires_at < now())
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                )
+                RETURNING key
+                """, UUID.class, nodeId, (double) leaseSeconds, count);
+    }
+
+    @Override
+    public int renewLeases(String nodeId, long leaseSeconds) {
+        // Leases that already lapsed may belong to another node by now, so they are left alone.
+        return jdbcTemplate.update("""
+                UPDATE all_keys SET lease_expires_at = now() + make_interval(secs => ?)
+                WHERE reserved_by = ? AND burned = false AND lease_expires_at >= now()
+                """, (double) leaseSeconds, nodeId);
+    }
+
+    @Override
+    public int[] burnLeasedKeys(String nodeId, List<UUID> keys, List<Integer> userIds) {
+        return jdbcTemplate.batchUpdate("""
+                UPDATE all_keys SET burned = true, burned_by = ?, burned_at = now(), reserved_by = NULL, lease_expires_at = NULL
+                WHERE key = ? AND reserved_by = ? AND burned = false
+                """, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setObject(1, userIds.get(i));
+                ps.setObject(2, keys.get(i));
+                ps.setString(3, nodeId);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return keys.size();
+            }
+        });
+    }
+
+    @Override
+    public long insertKeys(List<UUID> keys) {
+        // One statement for the whole batch; the count is of rows actually inserted, so keys
+        // skipped by ON CONFLICT or found in burned_keys are not counted.
+        return jdbcTemplate.query("""
+                WITH inserted AS (
+                    INSERT INTO all_keys (key, burned)
+                    SELECT DISTINCT n.key, false FROM unnest(CAST(? AS uuid[])) AS n(key)
+                    WHERE NOT EXISTS (SELECT 1 FROM burned_keys b WHERE b.key = n.key)
+                    ON CONFLICT (key) DO NOTHING
+                    RETURNING key
+                )
+                SELECT count(*) FROM inserted
+                """, ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", keys.toArray())),
+                rs -> {
+                    rs.next();
+                    return rs.getLong(1);
+                });
+    }
+
+    @Override
+    public int archiveBurnedKeys(int batchSize) {
+        // Only rows burned_keys actually took are deleted, so a key burned twice keeps both burns.
+        return jdbcTemplate.update("""
+                WITH picked AS (
+                    SELECT key, burned_by, burned_at FROM all_keys a
+                    WHERE burned = true
+                      AND NOT EXISTS (SELECT 1 FROM burned_keys b WHERE b.key = a.key)
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                ), archived AS (
+                    INSERT INTO burned_keys (key, burned_by, burned_at)
+                    SELECT key, burned_by, COALESCE(burned_at, now()) FROM picked
+                    ON CONFLICT (key) DO NOTHING
+                    RETURNING key
+                )
+                DELETE FROM all_keys WHERE key IN (SELECT key FROM archived)
+                """, batchSize);
+    }
+
+    @Override
+    public List<UUID> findDoubleBurnedKeys(int limit) {
+        return jdbcTemplate.queryForList("""
+                SELECT a.key FROM all_keys a
+                JOIN burned_keys b ON b.key = a.key
+                WHERE a.burned = true
+                LIMIT ?
+                """, UUID.class, limit);
+    }
+
+    @Override
+    public int releaseLeases(String nodeId) {
+        return jdbcTemplate.update("""
+                UPDATE all_keys SET reserved_by = NULL, lease_expires_at = NULL
+                WHERE reserved_by = ? AND burned = false
+                """, nodeId);
+    }
+}
@@ -2,10 +2,30 @@ package com.dema.riceKrispies.repository;
 
 import com.dema.riceKrispies.model.AUserModel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
 import java.util.Optional;
 
 public interface AUserRepository extends JpaRepository<AUserModel, Integer> {
     Optional<AUserModel> findByEmail(String email);
     Optional<AUserModel> findByUserId(Integer userId);
     boolean existsByEmail(String email);
+
+    // One round trip for registration; a taken email inserts nothing instead of raising.
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO users (email, password_hash, created_at) VALUES (:email, :hash, LOCALTIMESTAMP) "
+            + "ON CONFLICT (email) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("email") String email, @Param("hash") String passwordHash);
+
+    // Only replaces the hash it was computed from, so a concurrent password change wins.
+    @Transactional
+    @Modifying
+    @Query("UPDATE AUserModel u SET u.password = :newHash WHERE u.userId = :userId AND u.password = :oldHash")
+    int updatePasswordHash(@Param("userId") Integer userId,
+                           @Param("oldHash") String oldHash,
+                           @Param("newHash") String newHash);
 } 
\ No newline at end of file
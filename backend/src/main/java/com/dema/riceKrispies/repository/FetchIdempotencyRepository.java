@@ -0,0 +1,38 @@
+package com.dema.riceKrispies.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class FetchIdempotencyRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<UUID> findKey(Integer userId, String idempotencyKey, Duration window) {
+        List<UUID> keys = jdbcTemplate.queryForList("""
+                SELECT key FROM fetch_idempotency
+                WHERE user_id = ? AND idempotency_key = ? AND created_at > now() - make_interval(secs => ?)
+                """, UUID.class, userId, idempotencyKey, (double) window.toSeconds());
+        return keys.stream().findFirst();
+    }
+
+    // A row left over from an earlier window (not swept yet) is replaced; a live one is kept.
+    public void save(Integer userId, String idempotencyKey, UUID key, Duration window) {
+        jdbcTemplate.update("""
+                INSERT INTO fetch_idempotency (user_id, idempotency_key, key) VALUES (?, ?, ?)
+                ON CONFLICT (user_id, idempotency_key) DO UPDATE SET key = EXCLUDED.key, created_at = now()
+                WHERE fetch_idempotency.created_at <= now() - make_interval(secs => ?)
+                """, userId, idempotencyKey, key, (double) window.toSeconds());
+    }
+
+    public int deleteOlderThan(Duration window) {
+        return jdbcTemplate.update("DELETE FROM fetch_idempotency WHERE created_at < now() - make_interval(secs => ?)",
+                (double) window.toSeconds());
+    }
+}
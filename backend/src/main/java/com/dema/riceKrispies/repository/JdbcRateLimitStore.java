@@ -0,0 +1,47 @@
+package com.dema.riceKrispies.repository;
+
+import com.dema.riceKrispies.service.RateLimitStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "rate-limit.cluster.enabled", havingValue = "true")
+public class JdbcRateLimitStore implements RateLimitStore {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Map<String, Long> charge(String endpoint, SortedMap<String, Long> costs) {
+        Map<String, Long> fullAt = new HashMap<>(costs.size() * 2);
+        // A new row is full at now + cost; an existing one moves from max(full_at, now) by cost,
+        // which is max(full_at - now, 0) plus the value the insert would have used.
+        jdbcTemplate.query("""
+                WITH clock AS (SELECT (extract(epoch FROM now()) * 1000000)::bigint AS now_us)
+                INSERT INTO rate_limits AS r (endpoint, key, full_at)
+                SELECT ?, c.key, clock.now_us + c.cost
+                FROM unnest(CAST(? AS varchar[]), CAST(? AS bigint[])) WITH ORDINALITY AS c(key, cost, ord), clock
+                ORDER BY c.ord
+                ON CONFLICT (endpoint, key) DO UPDATE
+                    SET full_at = GREATEST(r.full_at - (extract(epoch FROM now()) * 1000000)::bigint, 0) + EXCLUDED.full_at
+                RETURNING r.key, r.full_at
+                """, ps -> {
+            ps.setString(1, endpoint);
+            ps.setArray(2, ps.getConnection().createArrayOf("varchar", costs.keySet().toArray()));
+            ps.setArray(3, ps.getConnection().createArrayOf("int8", costs.values().toArray()));
+        }, rs -> {
+            fullAt.put(rs.getString(1), rs.getLong(2));
+        });
+        return fullAt;
+    }
+
+    @Override
+    public int deleteRefilled() {
+        return jdbcTemplate.update("DELETE FROM rate_limits WHERE full_at < (extract(epoch FROM now()) * 1000000)::bigint");
+    }
+}
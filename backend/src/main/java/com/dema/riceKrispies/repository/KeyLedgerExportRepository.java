@@ -0,0 +1,87 @@
+package com.dema.riceKrispies.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads the burned-key ledger row by row for exports. Postgres only streams through a
+ * cursor when the statement runs inside a transaction with a fetch size; without one
+ * the driver buffers the whole result, so callers must hold a transaction open.
+ */
+@Repository
+@RequiredArgsConstructor
+public class KeyLedgerExportRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    @FunctionalInterface
+    public interface RowHandler {
+        void row(UUID key, Integer burnedBy, Instant burnedAt) throws IOException;
+    }
+
+    /**
+     * Hands every burned key matching the optional filters to {@code handler}, in no
+     * particular order. {@code to} is exclusive.
+     */
+    public void stream(Integer userId, Instant from, Instant to, int fetchSize, RowHandler handler) throws IOException {
+        List<Object> args = new ArrayList<>();
+        // The filters go into both halves so each can use its own burned_by index.
+        String filter = filter(userId, from, to, args);
+        List<Object> bothHalves = new ArrayList<>(args);
+        bothHalves.addAll(args);
+        String sql = """
+                SELECT key, burned_by, burned_at FROM all_keys WHERE burned = true%s
+                UNION ALL
+                SELECT key, burned_by, burned_at FROM burned_keys WHERE true%s
+                """.formatted(filter, filter);
+        try {
+            jdbcTemplate.query(con -> {
+                PreparedStatement statement = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                for (int i = 0; i < bothHalves.size(); i++) {
+                    statement.setObject(i + 1, bothHalves.get(i));
+                }
+                return statement;
+            }, rs -> {
+                OffsetDateTime burnedAt = rs.getObject(3, OffsetDateTime.class);
+                try {
+                    handler.row(rs.getObject(1, UUID.class), (Integer) rs.getObject(2),
+                            burnedAt == null ? null : burnedAt.toInstant());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String filter(Integer userId, Instant from, Instant to, List<Object> args) {
+        StringBuilder filter = new StringBuilder();
+        if (userId != null) {
+            filter.append(" AND burned_by = ?");
+            args.add(userId);
+        }
+        if (from != null) {
+            filter.append(" AND burned_at >= ?");
+            args.add(OffsetDateTime.ofInstant(from, ZoneOffset.UTC));
+        }
+        if (to != null) {
+            filter.append(" AND burned_at < ?");
+            args.add(OffsetDateTime.ofInstant(to, ZoneOffset.UTC));
+        }
+        return filter.toString();
+    }
+}
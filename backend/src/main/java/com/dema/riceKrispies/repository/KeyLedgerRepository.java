@@ -0,0 +1,14 @@
+package com.dema.riceKrispies.repository;
+
+import com.dema.riceKrispies.model.KeyLedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface KeyLedgerRepository extends JpaRepository<KeyLedgerEntry, KeyLedgerEntry.EntryId> {
+    // More than one entry means the key was burned twice.
+    List<KeyLedgerEntry> findByKeyOrderByBurnedAt(UUID key);
+    List<KeyLedgerEntry> findByBurnedByOrderByBurnedAt(Integer burnedBy);
+    long countByBurnedBy(Integer burnedBy);
+}
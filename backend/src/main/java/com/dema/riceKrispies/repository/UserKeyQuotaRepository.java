@@ -0,0 +1,39 @@
+package com.dema.riceKrispies.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class UserKeyQuotaRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds {@code count} to the keys reserved for {@code userId} and returns the new total,
+     * or empty if that would pass {@code max}. The first reservation seeds the row from the
+     * ledger; later ones are a guarded update of that row, so concurrent callers on any node
+     * queue on the row lock and the total can never pass {@code max}.
+     */
+    public Optional<Integer> reserve(Integer userId, int count, int max) {
+        List<Integer> totals = jdbcTemplate.queryForList("""
+                INSERT INTO user_key_quota (user_id, claimed)
+                SELECT ?, used + ? FROM (
+                    SELECT (SELECT count(*) FROM all_keys WHERE burned = true AND burned_by = ?)
+                         + (SELECT count(*) FROM burned_keys WHERE burned_by = ?) AS used
+                ) ledger
+                WHERE used + ? <= ?
+                ON CONFLICT (user_id) DO UPDATE SET claimed = user_key_quota.claimed + ?
+                WHERE user_key_quota.claimed + ? <= ?
+                RETURNING claimed
+                """, Integer.class, userId, count, userId, userId, count, max, count, count, max);
+        return totals.stream().findFirst();
+    }
+
+    public void release(Integer userId, int count) {
+        jdbcTemplate.update("UPDATE user_key_quota SET claimed = greatest(claimed - ?, 0) WHERE user_id = ?", count, userId);
+    }
+}
@@ -0,0 +1,13 @@
+package com.dema.riceKrispies.security;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+/**
+ * Principal for requests that carried a valid JWT.
+ */
+public record AuthenticatedUser(Integer userId, String email) implements AuthenticatedPrincipal {
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -0,0 +1,102 @@
+package com.dema.riceKrispies.security;
+
+import com.dema.riceKrispies.service.JwtUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.MalformedJwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers tokens whose signature has already been checked, keyed by their SHA-256
+ * digest so raw bearer tokens never sit in the heap. Each entry expires together with
+ * its token, so a cached token is never accepted past its exp claim.
+ */
+@Component
+public class VerifiedTokenCache {
+    private final JwtUtil jwtUtil;
+    private final Cache<String, VerifiedToken> cache;
+
+    public VerifiedTokenCache(JwtUtil jwtUtil,
+                              MeterRegistry meterRegistry,
+                              @Value("${security.jwt-cache.max-size:100000}") long maxSize) {
+        this.jwtUtil = jwtUtil;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified");
+    }
+
+    /**
+     * Returns the authentication for {@code token}, verifying it only if it has not been
+     * seen before. Throws the parser's JwtException when the token is not valid.
+     */
+    public Authentication authenticate(String token) {
+        return cache.get(digest(token), key -> verify(token)).authentication;
+    }
+
+    private VerifiedToken verify(String token) {
+        Claims claims = jwtUtil.validateToken(token).getBody();
+        if (claims.getExpiration() == null) {
+            throw new MalformedJwtException("token has no expiry");
+        }
+        Integer userId = claims.get("userId", Integer.class);
+        String email = claims.get("email", String.class);
+        // Never derived from the email: registration is open, so anyone could claim a listed address.
+        List<GrantedAuthority> authorities = Boolean.TRUE.equals(claims.get("admin", Boolean.class))
+                ? List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+                : Collections.emptyList();
+        // Shared by every request that presents this token, so it must never be mutated (no setDetails).
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser(userId, email), null, authorities);
+        return new VerifiedToken(authentication, claims.getExpiration().getTime());
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record VerifiedToken(Authentication authentication, long expiresAtMillis) {
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            long remainingMillis = value.expiresAtMillis - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
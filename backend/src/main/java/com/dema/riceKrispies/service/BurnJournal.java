@@ -0,0 +1,287 @@
+package com.dema.riceKrispies.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only audit trail of burns, kept off the database. {@link #append} only drops
+ * the record into a {@link BurnRingBuffer}; one background thread drains it into
+ * memory-mapped segment files of fixed-size, checksummed records and starts a new
+ * segment when one fills. Pages are forced to disk every keys.journal.force-every-records
+ * records or keys.journal.force-interval-ms, whichever comes first, so a crash loses at
+ * most that much. If the writer falls a full ring behind, records are dropped and
+ * counted rather than slowing fetches down; all_keys/burned_keys stay the record of
+ * truth. {@link BurnJournalReader} reads the files back.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "keys.journal.enabled", havingValue = "true")
+public class BurnJournal {
+    static final byte[] MAGIC = "BURNJNL1".getBytes(StandardCharsets.US_ASCII);
+    static final int HEADER_SIZE = 64;
+    static final int MAX_NODE_BYTES = 36;
+    // burnedAt(8) keyHigh(8) keyLow(8) userId(4) ip(16) crc32c(4)
+    static final int RECORD_SIZE = 48;
+    static final int CHECKED_BYTES = RECORD_SIZE - 4;
+    static final String SUFFIX = ".journal";
+
+    private static final int DRAIN_BATCH = 4096;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long REOPEN_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final Pattern IP_LITERAL = Pattern.compile("[0-9A-Fa-f:.]+");
+
+    private final Path directory;
+    private final String node;
+    private final long segmentBytes;
+    private final int forceEveryRecords;
+    private final long forceIntervalNanos;
+    private final BurnRingBuffer ring;
+    private final BurnRingBuffer.Sink writer = this::write;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final byte[] ipBytes = new byte[16];
+    private final CRC32C crc = new CRC32C();
+    private final Counter dropped;
+    private final Timer forceTime;
+
+    private Thread drainer;
+    private volatile boolean running;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int segmentSequence;
+    private int forcedUpTo;
+    private int unforced;
+    private long lastForceAt;
+    private long reopenAfter;
+    private boolean failed;
+
+    public BurnJournal(MeterRegistry meterRegistry,
+                       @Value("${keys.journal.directory:burn-journal}") Path directory,
+                       @Value("${keys.journal.node-name:${keys.reservoir.node-name:node}}") String node,
+                       @Value("${keys.journal.segment-size:64MB}") DataSize segmentSize,
+                       @Value("${keys.journal.ring-capacity:65536}") int ringCapacity,
+                       @Value("${keys.journal.force-every-records:1024}") int forceEveryRecords,
+                       @Value("${keys.journal.force-interval-ms:200}") long forceIntervalMillis) {
+        this.directory = directory;
+        this.node = node;
+        long records = (segmentSize.toBytes() - HEADER_SIZE) / RECORD_SIZE;
+        this.segmentBytes = HEADER_SIZE + Math.max(1, records) * RECORD_SIZE;
+        if (segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("keys.journal.segment-size must be below 2GB");
+        }
+        this.forceEveryRecords = forceEveryRecords;
+        this.forceIntervalNanos = TimeUnit.MILLISECONDS.toNanos(forceIntervalMillis);
+        this.ring = new BurnRingBuffer(ringCapacity);
+        this.dropped = Counter.builder("keys.journal.dropped")
+                .description("Burn records not journaled because the writer was a full ring behind or failing")
+                .register(meterRegistry);
+        this.forceTime = Timer.builder("keys.journal.force")
+                .description("Time to force journal pages to disk")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        openSegment();
+        running = true;
+        // A platform thread: it spins through batches and parks, and must not pin a carrier.
+        drainer = Thread.ofPlatform().daemon(true).name("burn-journal").start(this::drain);
+    }
+
+    /**
+     * Queues one burn for the journal. Never blocks; returns false if the record was dropped,
+     * including once the journal is closed and nothing drains the ring any more.
+     */
+    public boolean append(UUID key, Integer userId, String clientIp) {
+        if (running && ring.offer(System.currentTimeMillis(), key, userId == null ? 0 : userId, clientIp)) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    private void drain() {
+        while (running) {
+            int drained = 0;
+            try {
+                while (drained < DRAIN_BATCH && ring.poll(writer)) {
+                    drained++;
+                }
+                maybeForce(false);
+            } catch (RuntimeException e) {
+                // This is the only writer, so it must outlive a failed write or force.
+                log.error("Burn journal write failed in {}; retrying with a new segment", directory, e);
+                fail();
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void write(long burnedAt, long keyHigh, long keyLow, int userId, String clientIp) {
+        if (segment != null && segment.remaining() < RECORD_SIZE) {
+            rotate();
+        }
+        if (segment == null && !reopen()) {
+            dropped.increment();
+            return;
+        }
+        encodeIp(clientIp);
+        record.clear();
+        record.putLong(burnedAt).putLong(keyHigh).putLong(keyLow).putInt(userId).put(ipBytes);
+        crc.reset();
+        crc.update(record.array(), 0, CHECKED_BYTES);
+        record.putInt((int) crc.getValue());
+        segment.put(record.array());
+        unforced++;
+        if (forceEveryRecords > 0 && unforced >= forceEveryRecords) {
+            maybeForce(true);
+        }
+    }
+
+    private void maybeForce(boolean now) {
+        if (unforced == 0 || segment == null) {
+            return;
+        }
+        long time = System.nanoTime();
+        if (!now && (forceIntervalNanos <= 0 || time - lastForceAt < forceIntervalNanos)) {
+            return;
+        }
+        int position = segment.position();
+        segment.force(forcedUpTo, position - forcedUpTo);
+        forceTime.record(System.nanoTime() - time, TimeUnit.NANOSECONDS);
+        forcedUpTo = position;
+        unforced = 0;
+        lastForceAt = time;
+    }
+
+    private void rotate() {
+        maybeForce(true);
+        closeSegment();
+        try {
+            openSegment();
+        } catch (IOException e) {
+            log.error("Could not open a new burn journal segment in {}", directory, e);
+            fail();
+        }
+    }
+
+    // Drops the current segment; writes are counted as dropped until reopen() succeeds.
+    private void fail() {
+        closeSegment();
+        failed = true;
+        reopenAfter = System.nanoTime() + REOPEN_BACKOFF_NANOS;
+    }
+
+    private boolean reopen() {
+        if (failed && System.nanoTime() - reopenAfter < 0) {
+            return false;
+        }
+        rotate();
+        return segment != null;
+    }
+
+    private void openSegment() throws IOException {
+        String name = "burns-%s-%d-%06d%s".formatted(
+                node.replaceAll("[^A-Za-z0-9_.-]", "_"), System.currentTimeMillis(), segmentSequence++, SUFFIX);
+        FileChannel opened = FileChannel.open(directory.resolve(name),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer mapped = opened.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            mapped.put(MAGIC).putInt(RECORD_SIZE).putLong(System.currentTimeMillis());
+            byte[] nodeBytes = node.getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(nodeBytes.length, MAX_NODE_BYTES);
+            mapped.putShort((short) length).put(nodeBytes, 0, length);
+            mapped.position(HEADER_SIZE);
+            mapped.force(0, HEADER_SIZE);
+            channel = opened;
+            segment = mapped;
+            failed = false;
+            forcedUpTo = HEADER_SIZE;
+            unforced = 0;
+            lastForceAt = System.nanoTime();
+        } catch (IOException | RuntimeException e) {
+            opened.close();
+            throw e;
+        }
+    }
+
+    private void closeSegment() {
+        segment = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Could not close burn journal segment", e);
+            }
+            channel = null;
+        }
+    }
+
+    // getRemoteAddr() is always a literal address, so this never resolves a name.
+    private void encodeIp(String clientIp) {
+        Arrays.fill(ipBytes, (byte) 0);
+        if (clientIp == null || clientIp.isEmpty() || !IP_LITERAL.matcher(clientIp).matches()) {
+            return;
+        }
+        try {
+            byte[] address = InetAddress.getByName(clientIp).getAddress();
+            if (address.length == 4) {
+                // IPv4-mapped IPv6, so every record has the same 16-byte layout.
+                ipBytes[10] = (byte) 0xff;
+                ipBytes[11] = (byte) 0xff;
+                System.arraycopy(address, 0, ipBytes, 12, 4);
+            } else {
+                System.arraycopy(address, 0, ipBytes, 0, 16);
+            }
+        } catch (IOException e) {
+            // Leave the address blank rather than lose the record.
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        if (drainer != null) {
+            drainer.join(TimeUnit.SECONDS.toMillis(10));
+            if (drainer.isAlive()) {
+                log.warn("Burn journal writer did not stop; unwritten records are lost");
+                return;
+            }
+        }
+        try {
+            while (ring.poll(writer)) {
+                // Records queued after the drain loop's last pass.
+            }
+            maybeForce(true);
+        } catch (RuntimeException e) {
+            log.error("Burn journal write failed in {} while closing", directory, e);
+        }
+        closeSegment();
+    }
+}
@@ -0,0 +1,118 @@
+package com.dema.riceKrispies.service;
+
+import com.dema.riceKrispies.model.ProductKeys;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads segments written by {@link BurnJournal}, oldest first per node. A segment ends at
+ * its first all-zero record; a record whose checksum does not match (a write torn by a
+ * crash) also ends it. Run it over a journal directory to dump it as CSV:
+ *
+ * <pre>
+ * java -Dloader.main=com.dema.riceKrispies.service.BurnJournalReader -cp riceKrispies.jar \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher burn-journal/
+ * </pre>
+ */
+public final class BurnJournalReader {
+
+    public record Entry(String node, Instant burnedAt, UUID key, int userId, String clientIp) {
+    }
+
+    private BurnJournalReader() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 ? args[0] : "burn-journal");
+        System.out.println("node,burned_at,key,user_id,client_ip");
+        read(directory, entry -> System.out.println(String.join(",", entry.node(), entry.burnedAt().toString(),
+                ProductKeys.format(entry.key()), Integer.toString(entry.userId()),
+                entry.clientIp() == null ? "" : entry.clientIp())));
+    }
+
+    /**
+     * Replays every intact record in {@code directory} to {@code consumer} and returns how many there were.
+     */
+    public static long read(Path directory, Consumer<Entry> consumer) throws IOException {
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.filter(file -> file.getFileName().toString().endsWith(BurnJournal.SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        long count = 0;
+        for (Path segment : segments) {
+            count += readSegment(segment, consumer);
+        }
+        return count;
+    }
+
+    private static long readSegment(Path file, Consumer<Entry> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] magic = new byte[BurnJournal.MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, BurnJournal.MAGIC) || buffer.getInt() != BurnJournal.RECORD_SIZE) {
+                throw new IOException(file + " is not a burn journal segment");
+            }
+            buffer.getLong();
+            byte[] nodeBytes = new byte[buffer.getShort()];
+            buffer.get(nodeBytes);
+            String node = new String(nodeBytes, StandardCharsets.UTF_8);
+            buffer.position(BurnJournal.HEADER_SIZE);
+
+            byte[] record = new byte[BurnJournal.RECORD_SIZE];
+            CRC32C crc = new CRC32C();
+            long count = 0;
+            while (buffer.remaining() >= BurnJournal.RECORD_SIZE) {
+                buffer.get(record);
+                ByteBuffer fields = ByteBuffer.wrap(record);
+                crc.reset();
+                crc.update(record, 0, BurnJournal.CHECKED_BYTES);
+                if (fields.getInt(BurnJournal.CHECKED_BYTES) != (int) crc.getValue() || isBlank(record)) {
+                    break;
+                }
+                long burnedAt = fields.getLong();
+                UUID key = new UUID(fields.getLong(), fields.getLong());
+                int userId = fields.getInt();
+                byte[] ip = new byte[16];
+                fields.get(ip);
+                consumer.accept(new Entry(node, Instant.ofEpochMilli(burnedAt), key, userId, decodeIp(ip)));
+                count++;
+            }
+            return count;
+        }
+    }
+
+    private static boolean isBlank(byte[] record) {
+        for (byte b : record) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decodeIp(byte[] ip) throws IOException {
+        if (isBlank(ip)) {
+            return null;
+        }
+        // IPv4-mapped addresses come back as plain IPv4.
+        return InetAddress.getByAddress(ip).getHostAddress();
+    }
+}
@@ -0,0 +1,89 @@
+package com.dema.riceKrispies.service;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded many-producer, single-consumer ring of burn records. Each slot carries a
+ * sequence number (Vyukov's bounded queue): a producer claims a position with one CAS,
+ * fills the slot's primitive fields and publishes it by advancing the slot sequence, so
+ * offering allocates nothing and never blocks. When the consumer falls a full lap behind,
+ * {@link #offer} returns false instead of waiting.
+ */
+public final class BurnRingBuffer {
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final long[] burnedAt;
+    private final long[] keyHigh;
+    private final long[] keyLow;
+    private final int[] userIds;
+    private final String[] clientIps;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    public BurnRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.burnedAt = new long[size];
+        this.keyHigh = new long[size];
+        this.keyLow = new long[size];
+        this.userIds = new int[size];
+        this.clientIps = new String[size];
+    }
+
+    public boolean offer(long burnedAtMillis, UUID key, int userId, String clientIp) {
+        long position = tail.get();
+        int slot;
+        while (true) {
+            slot = (int) (position & mask);
+            long lag = sequences.get(slot) - position;
+            if (lag == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (lag < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+        burnedAt[slot] = burnedAtMillis;
+        keyHigh[slot] = key.getMostSignificantBits();
+        keyLow[slot] = key.getLeastSignificantBits();
+        userIds[slot] = userId;
+        clientIps[slot] = clientIp;
+        sequences.set(slot, position + 1);
+        return true;
+    }
+
+    /**
+     * Hands the oldest published record to {@code sink} and returns whether there was one.
+     * Only one thread may poll.
+     */
+    public boolean poll(Sink sink) {
+        int slot = (int) (head & mask);
+        if (sequences.get(slot) != head + 1) {
+            return false;
+        }
+        sink.accept(burnedAt[slot], keyHigh[slot], keyLow[slot], userIds[slot], clientIps[slot]);
+        clientIps[slot] = null;
+        sequences.set(slot, head + mask + 1);
+        head++;
+        return true;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    @FunctionalInterface
+    public interface Sink {
+        void accept(long burnedAtMillis, long keyHigh, long keyLow, int userId, String clientIp);
+    }
+}
@@ -0,0 +1,190 @@
+package com.dema.riceKrispies.service;
+
+import com.dema.riceKrispies.config.RateLimitProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Enforces each endpoint's limit across all nodes through a {@link RateLimitStore}.
+ * Requests are decided locally against the last bucket state the store reported plus
+ * what this node has admitted since; admitted cost is pre-aggregated per key and sent
+ * to the store in one batch per flush interval. A node can therefore overshoot by what
+ * it admits within one interval. If the store is unreachable, unflushed cost is kept
+ * and retried, and the per-node {@link TokenBucketLimiter} still applies. Flushes run
+ * on their own thread, so the interval holds even while Spring's single scheduler
+ * thread is busy archiving or replenishing.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "rate-limit.cluster.enabled", havingValue = "true")
+public class ClusterRateLimiter {
+    private final RateLimitStore store;
+    private final int maxKeys;
+    private final LongSupplier microClock;
+    private final Map<String, Endpoint> endpoints = new HashMap<>();
+    private final long flushIntervalMillis;
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public ClusterRateLimiter(RateLimitStore store, RateLimitProperties properties,
+                              @Value("${rate-limit.cluster.flush-interval-ms:250}") long flushIntervalMillis) {
+        this(store, properties, () -> ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now()), flushIntervalMillis);
+    }
+
+    public ClusterRateLimiter(RateLimitStore store, RateLimitProperties properties, LongSupplier microClock) {
+        this(store, properties, microClock, 250);
+    }
+
+    private ClusterRateLimiter(RateLimitStore store, RateLimitProperties properties, LongSupplier microClock,
+                               long flushIntervalMillis) {
+        this.store = store;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxKeys = properties.getMaxTrackedKeys();
+        this.microClock = microClock;
+        properties.getEndpoints().forEach((name, limit) -> endpoints.put(name,
+                new Endpoint(limit.getCapacity(), limit.getPeriod().toNanos() / 1_000 / limit.getCapacity())));
+    }
+
+    public boolean tryAcquire(String endpoint, Object key, int permits) {
+        Endpoint limits = endpoints.get(endpoint);
+        if (limits == null || permits > limits.capacity) {
+            return false;
+        }
+        long now = microClock.getAsLong();
+        SharedBucket bucket = limits.buckets.get(key);
+        if (bucket == null) {
+            if (limits.buckets.size() >= maxKeys) {
+                // Out of room until the next sweep; the per-node limiter still covers this key.
+                return true;
+            }
+            bucket = limits.buckets.computeIfAbsent(key, k -> new SharedBucket(now));
+        }
+        long cost = permits * limits.emissionMicros;
+        long tolerance = limits.capacity * limits.emissionMicros;
+        while (true) {
+            long current = bucket.fullAt.get();
+            long next = Math.max(current, now) + cost;
+            if (next - now > tolerance) {
+                return false;
+            }
+            if (bucket.fullAt.compareAndSet(current, next)) {
+                bucket.unflushed.addAndGet(cost);
+                return true;
+            }
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon(true).name("rate-limit-flush").factory());
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Sends what was admitted since the last flush, so other nodes see it after a clean shutdown.
+    @PreDestroy
+    void stop() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        flushQuietly();
+    }
+
+    public void flush() {
+        endpoints.forEach(this::flush);
+    }
+
+    // An exception escaping a scheduled task would cancel every later flush.
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Rate-limit flush failed", e);
+        }
+    }
+
+    private void flush(String name, Endpoint limits) {
+        // The store keys buckets by text; keys are only turned into strings here, once per flush.
+        SortedMap<String, Long> costs = new TreeMap<>();
+        Map<String, Object> keys = new HashMap<>();
+        limits.buckets.forEach((key, bucket) -> {
+            long cost = bucket.unflushed.getAndSet(0);
+            if (cost > 0) {
+                String stored = key.toString();
+                costs.put(stored, cost);
+                keys.put(stored, key);
+            }
+        });
+        if (costs.isEmpty()) {
+            return;
+        }
+        Map<String, Long> fullAt;
+        try {
+            fullAt = store.charge(name, costs);
+        } catch (RuntimeException e) {
+            costs.forEach((stored, cost) -> limits.buckets.computeIfAbsent(keys.get(stored), k -> new SharedBucket(0))
+                    .unflushed.addAndGet(cost));
+            log.warn("Could not flush {} rate-limit charges for {}", costs.size(), name, e);
+            return;
+        }
+        fullAt.forEach((stored, shared) -> {
+            Object key = keys.get(stored);
+            SharedBucket bucket = key == null ? null : limits.buckets.get(key);
+            if (bucket != null) {
+                // Cost admitted since the snapshot is not in the store's answer yet.
+                bucket.fullAt.accumulateAndGet(shared + bucket.unflushed.get(), Math::max);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.sweep-interval-ms:60000}")
+    public void sweep() {
+        long now = microClock.getAsLong();
+        for (Endpoint limits : endpoints.values()) {
+            limits.buckets.values().removeIf(bucket -> bucket.unflushed.get() == 0 && bucket.fullAt.get() - now <= 0);
+        }
+        try {
+            store.deleteRefilled();
+        } catch (RuntimeException e) {
+            log.warn("Could not delete refilled rate-limit buckets", e);
+        }
+    }
+
+    private static final class Endpoint {
+        final int capacity;
+        final long emissionMicros;
+        final Map<Object, SharedBucket> buckets = new ConcurrentHashMap<>();
+
+        Endpoint(int capacity, long emissionMicros) {
+            this.capacity = capacity;
+            this.emissionMicros = emissionMicros;
+        }
+    }
+
+    private static final class SharedBucket {
+        final AtomicLong fullAt;
+        final AtomicLong unflushed = new AtomicLong();
+
+        SharedBucket(long fullAt) {
+            this.fullAt = new AtomicLong(fullAt);
+        }
+    }
+}
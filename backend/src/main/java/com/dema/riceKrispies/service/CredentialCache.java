@@ -0,0 +1,73 @@
+package com.dema.riceKrispies.service;
+
+import com.dema.riceKrispies.model.AUserModel;
+import com.dema.riceKrispies.repository.AUserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Login credentials by email, so repeat logins during a drop only pay for BCrypt. Only
+ * existing accounts are cached. Entries are dropped when the account is registered or
+ * its hash changes on this node; a change made on another node shows up here once the
+ * entry expires.
+ */
+@Component
+public class CredentialCache {
+    private final AUserRepository userRepository;
+    private final Cache<String, Credentials> cache;
+
+    public CredentialCache(AUserRepository userRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${users.credential-cache.max-size:50000}") long maxSize,
+                           @Value("${users.credential-cache.ttl:5m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "users.credentials");
+    }
+
+    public Optional<Credentials> find(String email) {
+        Credentials cached = cache.getIfPresent(email);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        // Loaded outside the cache's compute so the query never runs under a map lock.
+        Optional<Credentials> loaded = userRepository.findByEmail(email).map(Credentials::of);
+        loaded.ifPresent(credentials -> cache.asMap().putIfAbsent(email, credentials));
+        return loaded;
+    }
+
+    /**
+     * Records a hash this node has just written, so the next login does not reload it.
+     */
+    public void updateHash(String email, String passwordHash) {
+        cache.asMap().computeIfPresent(email, (key, credentials) -> credentials.withPasswordHash(passwordHash));
+    }
+
+    public void invalidate(String email) {
+        cache.invalidate(email);
+    }
+
+    public record Credentials(Integer userId, String email, String passwordHash, LocalDateTime createdAt,
+                              boolean admin) {
+        static Credentials of(AUserModel user) {
+            return new Credentials(user.getUserId(), user.getEmail(), user.getPassword(), user.getCreatedAt(),
+                    user.isAdmin());
+        }
+
+        Credentials withPasswordHash(String passwordHash) {
+            return new Credentials(userId, email, passwordHash, createdAt, admin);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.dema.riceKrispies.service;
+
+import com.dema.riceKrispies.dto.FetchKeyResponse;
+import com.dema.riceKrispies.model.ProductKeys;
+import com.dema.riceKrispies.repository.FetchIdempotencyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Replays /fetchKeys/ results for a repeated Idempotency-Key. The first request for a
+ * (user, key) pair parks a future in a bounded in-memory map; duplicates arriving while
+ * it runs wait on that future instead of claiming again, and later retries within the
+ * window get its result. Results are also written to fetch_idempotency so a retry that
+ * lands on another node, or after a restart, still gets the same key.
+ */
+@Slf4j
+@Component
+public class IdempotentFetches {
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private final FetchIdempotencyRepository repository;
+    private final Duration window;
+    private final Cache<Scope, CompletableFuture<FetchKeyResponse>> recent;
+
+    public IdempotentFetches(FetchIdempotencyRepository repository,
+                             @Value("${keys.idempotency.window:10m}") Duration window,
+                             @Value("${keys.idempotency.max-entries:100000}") long maxEntries) {
+        this.repository = repository;
+        this.window = window;
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    public FetchKeyResponse fetch(Integer userId, String idempotencyKey, Supplier<FetchKeyResponse> claim) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("invalid request");
+        }
+        Scope scope = new Scope(userId, idempotencyKey);
+        CompletableFuture<FetchKeyResponse> mine = new CompletableFuture<>();
+        CompletableFuture<FetchKeyResponse> existing = recent.asMap().putIfAbsent(scope, mine);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            Optional<UUID> stored = repository.findKey(userId, idempotencyKey, window);
+            FetchKeyResponse response = stored.isPresent()
+                    ? FetchKeyResponse.of(stored.get(), userId)
+                    : claimAndRecord(userId, idempotencyKey, claim);
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            // Failures are not remembered, so the client's retry runs the claim again.
+            recent.asMap().remove(scope, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private FetchKeyResponse claimAndRecord(Integer userId, String idempotencyKey, Supplier<FetchKeyResponse> claim) {
+        FetchKeyResponse response = claim.get();
+        try {
+            repository.save(userId, idempotencyKey, ProductKeys.parse(response.getKey()), window);
+        } catch (RuntimeException e) {
+            // The key is burned either way; this node still replays it from memory.
+            log.warn("Could not record idempotent fetch for user {}", userId, e);
+        }
+        return response;
+    }
+
+    private static FetchKeyResponse await(CompletableFuture<FetchKeyResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${keys.idempotency.sweep-interval-ms:60000}")
+    public void sweep() {
+        repository.deleteOlderThan(window);
+    }
+
+    private record Scope(Integer userId, String idempotencyKey) {
+    }
+}
@@ -13,16 +13,29 @@ import java.util.Map;
 @Component
 public class JwtUtil {
     private final SecretKey secretKey;
+    // Immutable and thread-safe, so one instance serves every request.
+    private final JwtParser parser;
     private static final long EXPIRATION_MS = 24 * 60 * 60 * 1000L; // 24 hours
 
     public JwtUtil(@Value("${jwt.secret}") String secret) {
         this.secretKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(secretKey)
+                .build();
     }
 
     public String generateToken(Integer userId, String email) {
+        return generateToken(userId, email, false);
+    }
+
+    // The admin claim is copied from users.is_admin at login and is only trusted because it is signed.
+    public String generateToken(Integer userId, String email, boolean admin) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", userId);
         claims.put("email", email);
+        if (admin) {
+            claims.put("admin", true);
+        }
         return Jwts.builder()
                 .setClaims(claims)
                 .setIssuedAt(new Date())
@@ -32,10 +45,7 @@ public class JwtUtil {
     }
 
     public Jws<Claims> validateToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token);
+        return parser.parseClaimsJws(token);
     }
 
     public Integer extractUserId(String token) {
@@ -0,0 +1,51 @@
+package com.dema.riceKrispies.service;
+
+import com.dema.riceKrispies.repository.AKeyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Moves burned keys from all_Keys to burned_keys in batches, keeping the hot table
+ * (and the index claims walk) limited to keys that can still be handed out. A key that
+ * burned_keys already holds was burned twice; it stays in all_Keys as evidence and is
+ * logged on every run until someone resolves it.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "keys.archive.enabled", havingValue = "true", matchIfMissing = true)
+public class KeyArchiver {
+    private static final int DOUBLE_BURN_SAMPLE = 20;
+
+    private final AKeyRepository keyRepository;
+    private final int batchSize;
+
+    public KeyArchiver(AKeyRepository keyRepository,
+                       @Value("${keys.archive.batch-size:5000}") int batchSize) {
+        this.keyRepository = keyRepository;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${keys.archive.interval-ms:30000}",
+            fixedDelayString = "${keys.archive.interval-ms:30000}")
+    public void archive() {
+        long total = 0;
+        int moved;
+        do {
+            moved = keyRepository.archiveBurnedKeys(batchSize);
+            total += moved;
+        } while (moved == batchSize);
+        if (total > 0) {
+            log.debug("Archived {} burned keys", total);
+        }
+        List<UUID> doubleBurned = keyRepository.findDoubleBurnedKeys(DOUBLE_BURN_SAMPLE);
+        if (!doubleBurned.isEmpty()) {
+            log.error("Keys burned twice were left in all_Keys instead of being archived: {}", doubleBurned);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.dema.riceKrispies.service;
+
+import com.dema.riceKrispies.exception.ServiceBusyException;
+import com.dema.riceKrispies.repository.AKeyRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Coalesces concurrent fetches into one claim statement. A dispatcher waits for the
+ * first request, keeps collecting until the window closes or the batch is full, then
+ * burns that many keys in a single round trip and completes each caller's future.
+ * Callers give up after keys.batch.timeout-ms, so a stuck database or dead dispatcher
+ * cannot pile up request threads. Callers must not hold a pooled connection while they
+ * wait (spring.jpa.open-in-view=false): a full pool of waiting callers starves the
+ * dispatchers.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "keys.batch.enabled", havingValue = "true")
+public class KeyClaimBatcher {
+    private final AKeyRepository keyRepository;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final int dispatcherCount;
+    private final long timeoutMillis;
+    private final boolean virtualThreads;
+    private final BlockingQueue<ClaimRequest> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> dispatchers = new ArrayList<>();
+    private final DistributionSummary batchSize;
+    private final Timer batchWait;
+    private volatile boolean closed;
+
+    public KeyClaimBatcher(AKeyRepository keyRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${keys.batch.window-micros:2000}") long windowMicros,
+                           @Value("${keys.batch.max-size:64}") int maxBatchSize,
+                           @Value("${keys.batch.dispatchers:2}") int dispatcherCount,
+                           @Value("${keys.batch.timeout-ms:5000}") long timeoutMillis,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.keyRepository = keyRepository;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxBatchSize = maxBatchSize;
+        this.dispatcherCount = dispatcherCount;
+        this.timeoutMillis = timeoutMillis;
+        this.virtualThreads = virtualThreads;
+        this.batchSize = DistributionSummary.builder("keys.claim.batch.size")
+                .description("Fetch requests served by one claim statement")
+                .register(meterRegistry);
+        this.batchWait = Timer.builder("keys.claim.batch.wait")
+                .description("Time a fetch request waited before its batch was dispatched")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        // Dispatchers spend their time blocked on JDBC, so they follow the virtual-thread setting.
+        Thread.Builder builder = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon(true);
+        for (int i = 0; i < dispatcherCount; i++) {
+            dispatchers.add(builder.name("key-claim-batcher-" + i).start(this::dispatchLoop));
+        }
+    }
+
+    /**
+     * Blocks until the request's batch has run and returns the key burned for {@code userId},
+     * or null if the pool ran out. Throws {@link ServiceBusyException} if the batch does not
+     * run within keys.batch.timeout-ms.
+     */
+    public UUID claim(Integer userId) {
+        if (closed) {
+            throw new IllegalStateException("key claim batcher is shut down");
+        }
+        ClaimRequest request = new ClaimRequest(userId, System.nanoTime(), new CompletableFuture<>());
+        queue.add(request);
+        // shutdown() may have drained the queue between the check above and the add.
+        if (closed && queue.remove(request)) {
+            throw new IllegalStateException("key claim batcher is shut down");
+        }
+        try {
+            return request.result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                // Still queued means nothing was claimed for it; otherwise dispatch() logs the orphaned key.
+                queue.remove(request);
+                throw new ServiceBusyException();
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void dispatchLoop() {
+        List<ClaimRequest> batch = new ArrayList<>(maxBatchSize);
+        while (!closed) {
+            try {
+                ClaimRequest first = queue.take();
+                batch.add(first);
+                long deadline = first.enqueuedNanos + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    ClaimRequest next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(batch, new IllegalStateException("key claim batcher is shut down"));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void dispatch(List<ClaimRequest> batch) {
+        long dispatchedAt = System.nanoTime();
+        List<Integer> userIds = new ArrayList<>(batch.size());
+        for (ClaimRequest request : batch) {
+            batchWait.record(dispatchedAt - request.enqueuedNanos, TimeUnit.NANOSECONDS);
+            userIds.add(request.userId);
+        }
+        batchSize.record(batch.size());
+
+        List<UUID> keys;
+        try {
+            keys = keyRepository.claimKeysFor(userIds);
+        } catch (RuntimeException e) {
+            log.warn("Batched claim of {} keys failed", batch.size(), e);
+            fail(batch, e);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            ClaimRequest request = batch.get(i);
+            if (!request.result.complete(keys.get(i)) && keys.get(i) != null) {
+                log.warn("Key {} was burned for user {} after the request timed out", keys.get(i), request.userId);
+            }
+        }
+    }
+
+    private static void fail(List<ClaimRequest> batch, RuntimeException e) {
+        for (ClaimRequest request : batch) {
+            request.result.completeExceptionally(e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        closed = true;
+        dispatchers.forEach(Thread::interrupt);
+        List<ClaimRequest> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        fail(leftover, new IllegalStateException("key claim batcher is shut down"));
+    }
+
+    private record ClaimRequest(Integer userId, long enqueuedNanos, CompletableFuture<UUID> result) {
+    }
+}
@@ -0,0 +1,81 @@
+package com.dema.riceKrispies.service;
+
+import com.dema.riceKrispies.model.ProductKeys;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates random product keys (see {@link ProductKeys}) on one worker per core.
+ * Every worker owns its own DRBG instance, so workers never contend on a shared SecureRandom.
+ * The work is pure CPU, so these stay platform threads even in virtual-thread mode.
+ */
+@Service
+public class KeyGeneratorService {
+    private final int workers = Runtime.getRuntime().availableProcessors();
+    private final ExecutorService pool;
+    private final ThreadLocal<SecureRandom> random = ThreadLocal.withInitial(KeyGeneratorService::newRandom);
+
+    public KeyGeneratorService() {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "key-generator-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public List<UUID> generate(int count) {
+        int perWorker = (count + workers - 1) / workers;
+        List<Future<List<UUID>>> parts = new ArrayList<>(workers);
+        for (int remaining = count; remaining > 0; remaining -= perWorker) {
+            int size = Math.min(perWorker, remaining);
+            parts.add(pool.submit(() -> generateOnWorker(size)));
+        }
+        List<UUID> keys = new ArrayList<>(count);
+        try {
+            for (Future<List<UUID>> part : parts) {
+                keys.addAll(part.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("key generation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("key generation failed", e.getCause());
+        }
+        return keys;
+    }
+
+    private List<UUID> generateOnWorker(int count) {
+        SecureRandom rnd = random.get();
+        List<UUID> keys = new ArrayList<>(count);
+        for (int n = 0; n < count; n++) {
+            // Each half is a uniform 8-digit base-36 value, the same space as 8 random A-Z0-9 chars.
+            keys.add(new UUID(rnd.nextLong(ProductKeys.HALF_BOUND), rnd.nextLong(ProductKeys.HALF_BOUND)));
+        }
+        return keys;
+    }
+
+    private static SecureRandom newRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+}
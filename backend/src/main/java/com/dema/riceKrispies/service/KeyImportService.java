@@ -0,0 +1,172 @@
+package com.dema.riceKrispies.service;
+
+import com.dema.riceKrispies.dto.KeyImportResponse;
+import com.dema.riceKrispies.model.ProductKeys;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Loads keys with COPY FROM STDIN into a temporary table and merges them into
+ * all_Keys with one INSERT ... ON CONFLICT DO NOTHING, skipping keys that were
+ * already burned and archived. Lines are validated, converted to the stored uuid
+ * form and forwarded in fixed-size chunks, so memory use does not depend on file size.
+ * Lines longer than {@link #MAX_LINE_CHARS} are rejected without being buffered. The
+ * import runs in one transaction, which holds a pooled connection for as long as the
+ * client takes to upload.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KeyImportService {
+    private static final int COPY_CHUNK_BYTES = 64 * 1024;
+    // Room for a key plus generous whitespace; anything longer cannot be one.
+    static final int MAX_LINE_CHARS = 256;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final KeyInventory keyInventory;
+
+    @Transactional
+    public KeyImportResponse importKeys(InputStream keys) {
+        long started = System.nanoTime();
+        ImportCounts counts = jdbcTemplate.execute((ConnectionCallback<ImportCounts>) con -> copyAndMerge(con, keys));
+        // Until the merge commits the keys are invisible to claims, and a rollback would never add them.
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                keyInventory.recordAdded(counts.inserted);
+            }
+        });
+        long elapsedNanos = Math.max(1, System.nanoTime() - started);
+        long duplicates = counts.accepted - counts.inserted;
+        long keysPerSecond = counts.received * 1_000_000_000L / elapsedNanos;
+        log.info("Imported {} of {} keys ({} duplicates, {} rejected) at {} keys/s",
+                counts.inserted, counts.received, duplicates, counts.rejected, keysPerSecond);
+        return new KeyImportResponse(counts.received, counts.inserted, duplicates, counts.rejected,
+                elapsedNanos / 1_000_000, keysPerSecond);
+    }
+
+    private ImportCounts copyAndMerge(Connection con, InputStream keys) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            statement.execute("CREATE TEMP TABLE key_import (key uuid) ON COMMIT DROP");
+        }
+
+        CopyIn copyIn = con.unwrap(PGConnection.class).getCopyAPI().copyIn("COPY key_import (key) FROM STDIN");
+        long received = 0;
+        long rejected = 0;
+        byte[] chunk = new byte[COPY_CHUNK_BYTES];
+        int used = 0;
+        try (Reader in = new InputStreamReader(keys, StandardCharsets.UTF_8)) {
+            BoundedLineReader reader = new BoundedLineReader(in);
+            String line;
+            while ((line = reader.next()) != null) {
+                String key = line.strip();
+                if (key.isEmpty() && !reader.overlong()) {
+                    continue;
+                }
+                received++;
+                if (reader.overlong() || !ProductKeys.isValid(key)) {
+                    rejected++;
+                    continue;
+                }
+                String stored = ProductKeys.parse(key).toString();
+                if (used + stored.length() + 1 > chunk.length) {
+                    copyIn.writeToCopy(chunk, 0, used);
+                    used = 0;
+                }
+                // Canonical uuid text is ASCII, so each char is one byte.
+                for (int i = 0; i < stored.length(); i++) {
+                    chunk[used++] = (byte) stored.charAt(i);
+                }
+                chunk[used++] = '\n';
+            }
+            if (used > 0) {
+                copyIn.writeToCopy(chunk, 0, used);
+            }
+            copyIn.endCopy();
+        } catch (IOException e) {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+            throw new UncheckedIOException(e);
+        }
+
+        long inserted;
+        try (Statement statement = con.createStatement()) {
+            inserted = statement.executeLargeUpdate("""
+                    INSERT INTO all_keys (key, burned)
+                    SELECT DISTINCT i.key, false FROM key_import i
+                    WHERE NOT EXISTS (SELECT 1 FROM burned_keys b WHERE b.key = i.key)
+                    ON CONFLICT (key) DO NOTHING
+                    """);
+        }
+        return new ImportCounts(received, received - rejected, rejected, inserted);
+    }
+
+    /**
+     * Splits the upload on '\n' like readLine, but keeps at most MAX_LINE_CHARS of a line
+     * and drops the rest, so a body without newlines cannot grow the heap.
+     */
+    private static final class BoundedLineReader {
+        private final Reader in;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder line = new StringBuilder(MAX_LINE_CHARS);
+        private int position;
+        private int limit;
+        private boolean overlong;
+
+        BoundedLineReader(Reader in) {
+            this.in = in;
+        }
+
+        // Returns the next line, or null at end of input.
+        String next() throws IOException {
+            line.setLength(0);
+            overlong = false;
+            boolean started = false;
+            while (true) {
+                if (position == limit) {
+                    limit = Math.max(0, in.read(buffer, 0, buffer.length));
+                    position = 0;
+                    if (limit == 0) {
+                        return started ? line.toString() : null;
+                    }
+                }
+                started = true;
+                char c = buffer[position++];
+                if (c == '\n') {
+                    return line.toString();
+                }
+                if (line.length() < MAX_LINE_CHARS) {
+                    line.append(c);
+                } else {
+                    overlong = true;
+                }
+            }
+        }
+
+        boolean overlong() {
+            return overlong;
+        }
+    }
+
+    private record ImportCounts(long received, long accepted, long rejected, long inserted) {
+    }
+}
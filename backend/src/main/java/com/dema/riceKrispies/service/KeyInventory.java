@@ -0,0 +1,113 @@
+package com.dema.riceKrispies.service;
+
+import com.dema.riceKrispies.dto.KeyStatsResponse;
+import com.dema.riceKrispies.repository.ABurnedKeyRepository;
+import com.dema.riceKrispies.repository.AKeyRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory available/burned counters so dashboards never count all_Keys.
+ * Seeded once at startup, kept current by this node's burns and imports, and
+ * reconciled against the database periodically to pick up other nodes' work.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class KeyInventory {
+    private final AKeyRepository keyRepository;
+    private final ABurnedKeyRepository burnedKeyRepository;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong available = new AtomicLong();
+    private final AtomicLong burned = new AtomicLong();
+    private volatile Instant reconciledAt;
+    private volatile boolean soldOut;
+
+    @PostConstruct
+    void registerGauges() {
+        Gauge.builder("keys.available", available, AtomicLong::get)
+                .description("Unburned keys, as last reconciled plus this node's burns and imports since")
+                .register(meterRegistry);
+        Gauge.builder("keys.burned", burned, AtomicLong::get)
+                .register(meterRegistry);
+        Gauge.builder("keys.sold_out", this, inventory -> inventory.soldOut ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        reconcile();
+    }
+
+    @Scheduled(initialDelayString = "${keys.inventory.reconcile-interval-ms:60000}",
+            fixedDelayString = "${keys.inventory.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        long actualAvailable = keyRepository.countByBurnedFalse();
+        long actualBurned = keyRepository.countByBurnedTrue() + burnedKeyRepository.count();
+        long drift = available.getAndSet(actualAvailable) - actualAvailable;
+        burned.set(actualBurned);
+        reconciledAt = Instant.now();
+        if (keyRepository.existsUnburnedKey()) {
+            soldOut = false;
+        }
+        if (drift != 0) {
+            log.debug("Key inventory drifted by {} since last reconciliation", drift);
+        }
+    }
+
+    public void recordBurned(long count) {
+        available.addAndGet(-count);
+        burned.addAndGet(count);
+    }
+
+    public void recordAdded(long count) {
+        available.addAndGet(count);
+        if (count > 0) {
+            soldOut = false;
+        }
+    }
+
+    /**
+     * Called when a claim found nothing. Claims skip row-locked keys and keys leased to
+     * other nodes, so the pool is only marked sold out once no unburned key exists at all;
+     * fetches are then rejected in memory until keys are imported, replenished or found by
+     * reconciliation. Returns whether the pool is sold out.
+     */
+    public boolean confirmSoldOut() {
+        if (keyRepository.existsUnburnedKey()) {
+            return false;
+        }
+        if (!soldOut) {
+            log.info("Key pool is sold out");
+            soldOut = true;
+        }
+        return true;
+    }
+
+    public boolean isSoldOut() {
+        return soldOut;
+    }
+
+    public boolean isSeeded() {
+        return reconciledAt != null;
+    }
+
+    public long getAvailable() {
+        return available.get();
+    }
+
+    public KeyStatsResponse snapshot() {
+        return new KeyStatsResponse(Math.max(0, available.get()), burned.get(), soldOut, reconciledAt);
+    }
+}
@@ -0,0 +1,105 @@
+package com.dema.riceKrispies.service;
+
+import com.dema.riceKrispies.model.ProductKeys;
+import com.dema.riceKrispies.repository.KeyLedgerExportRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Writes the burned-key ledger to a stream as CSV or NDJSON while it is read, so memory
+ * use does not depend on the ledger's size. The read runs in one read-only transaction,
+ * which holds a pooled connection for as long as the client takes to download.
+ */
+@Service
+public class KeyLedgerExportService {
+    public enum Format {
+        CSV("text/csv"),
+        NDJSON("application/x-ndjson");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+    }
+
+    private final KeyLedgerExportRepository exportRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int fetchSize;
+
+    public KeyLedgerExportService(KeyLedgerExportRepository exportRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${keys.export.fetch-size:5000}") int fetchSize) {
+        this.exportRepository = exportRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Streams matching ledger rows to {@code out} and returns how many were written.
+     */
+    public long export(Format format, Integer userId, Instant from, Instant to, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == Format.CSV) {
+            writer.write("key,burned_by,burned_at\n");
+        }
+        long[] rows = {0};
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try {
+                    exportRepository.stream(userId, from, to, fetchSize, (key, burnedBy, burnedAt) -> {
+                        writeRow(writer, format, key, burnedBy, burnedAt);
+                        rows[0]++;
+                    });
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return rows[0];
+    }
+
+    private static void writeRow(Writer writer, Format format, UUID key, Integer burnedBy, Instant burnedAt)
+            throws IOException {
+        // Product keys, ids and ISO instants never need quoting or escaping.
+        String formattedKey = ProductKeys.format(key);
+        String user = burnedBy == null ? null : burnedBy.toString();
+        String at = burnedAt == null ? null : burnedAt.toString();
+        if (format == Format.CSV) {
+            writer.write(formattedKey);
+            writer.write(',');
+            writer.write(user == null ? "" : user);
+            writer.write(',');
+            writer.write(at == null ? "" : at);
+        } else {
+            writer.write("{\"key\":\"");
+            writer.write(formattedKey);
+            writer.write("\",\"burnedBy\":");
+            writer.write(user == null ? "null" : user);
+            writer.write(",\"burnedAt\":");
+            writer.write(at == null ? "null" : "\"" + at + "\"");
+            writer.write('}');
+        }
+        writer.write('\n');
+    }
+}
@@ -0,0 +1,67 @@
+package com.dema.riceKrispies.service;
+
+import com.dema.riceKrispies.repository.AKeyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tops all_Keys back up to keys.replenish.target whenever the unburned count drops
+ * below keys.replenish.low-watermark. Runs on the scheduler thread only and reads
+ * the count from {@link KeyInventory} rather than the table.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "keys.replenish.enabled", havingValue = "true")
+public class KeyReplenisher {
+    private final AKeyRepository keyRepository;
+    private final KeyGeneratorService keyGeneratorService;
+    private final KeyInventory keyInventory;
+    private final long lowWatermark;
+    private final long target;
+    private final int batchSize;
+
+    public KeyReplenisher(AKeyRepository keyRepository,
+                          KeyGeneratorService keyGeneratorService,
+                          KeyInventory keyInventory,
+                          @Value("${keys.replenish.low-watermark:10000}") long lowWatermark,
+                          @Value("${keys.replenish.target:50000}") long target,
+                          @Value("${keys.replenish.batch-size:5000}") int batchSize) {
+        this.keyRepository = keyRepository;
+        this.keyGeneratorService = keyGeneratorService;
+        this.keyInventory = keyInventory;
+        this.lowWatermark = lowWatermark;
+        this.target = target;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${keys.replenish.check-interval-ms:10000}")
+    public void replenish() {
+        if (!keyInventory.isSeeded()) {
+            return;
+        }
+        long available = keyInventory.getAvailable();
+        if (available >= lowWatermark) {
+            return;
+        }
+        long missing = target - available;
+        long inserted = 0;
+        while (inserted < missing) {
+            int size = (int) Math.min(batchSize, missing - inserted);
+            List<UUID> keys = keyGeneratorService.generate(size);
+            long added = keyRepository.insertKeys(keys);
+            if (added == 0) {
+                log.warn("Replenishment stopped after {} of {} keys: a batch of {} inserted nothing", inserted, missing, size);
+                break;
+            }
+            keyInventory.recordAdded(added);
+            inserted += added;
+        }
+        log.info("Replenished key pool from {} to {} unburned keys", available, available + inserted);
+    }
+}
@@ -0,0 +1,251 @@
+package com.dema.riceKrispies.service;
+
+import com.dema.riceKrispies.repository.AKeyRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds a block of keys leased from all_Keys so fetches can be served from memory.
+ * Burns are written back in batches by a single maintenance thread, which also
+ * refills and renews the lease. If the node dies, its leases expire and the keys
+ * become claimable again; burns still waiting for the next flush are the only
+ * ones at risk, so the flush interval should stay well below the lease length.
+ * While flushes keep failing, the reservoir stops handing out keys once the oldest
+ * unrecorded burn nears the end of its lease.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "keys.reservoir.enabled", havingValue = "true")
+@DependsOn("keyStorageMigration")
+public class KeyReservoir {
+    private final AKeyRepository keyRepository;
+    private final String nodeId;
+    private final int blockSize;
+    private final int lowWatermark;
+    private final long leaseSeconds;
+    private final long leaseNanos;
+    private final long safetyMarginNanos;
+    private final long flushIntervalMillis;
+
+    private final Queue<LeasedKey> available = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger availableCount = new AtomicInteger();
+    private final Queue<PendingBurn> pendingBurns = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean refillScheduled = new AtomicBoolean();
+    // Takes between their closed check and queuing the burn; shutdown waits for these.
+    private final AtomicInteger takesInFlight = new AtomicInteger();
+    private final ScheduledExecutorService maintenance;
+    private volatile boolean closed;
+    private volatile boolean suspended;
+
+    public KeyReservoir(AKeyRepository keyRepository,
+                        @Value("${keys.reservoir.node-name:node}") String nodeName,
+                        @Value("${keys.reservoir.block-size:500}") int blockSize,
+                        @Value("${keys.reservoir.low-watermark:100}") int lowWatermark,
+                        @Value("${keys.reservoir.lease-seconds:300}") long leaseSeconds,
+                        @Value("${keys.reservoir.flush-interval-ms:200}") long flushIntervalMillis,
+                        @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.keyRepository = keyRepository;
+        // A fresh id per process: a restarted node must never renew leases it no longer holds in memory.
+        this.nodeId = nodeName + "-" + UUID.randomUUID();
+        this.blockSize = blockSize;
+        this.lowWatermark = lowWatermark;
+        this.leaseSeconds = leaseSeconds;
+        this.leaseNanos = TimeUnit.SECONDS.toNanos(leaseSeconds);
+        this.safetyMarginNanos = leaseNanos / 5;
+        this.flushIntervalMillis = flushIntervalMillis;
+        Thread.Builder builder = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon(true);
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(builder.name("key-reservoir").factory());
+    }
+
+    @PostConstruct
+    void start() {
+        scheduleRefill();
+        maintenance.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        long renewEvery = Math.max(1, leaseSeconds / 3);
+        maintenance.scheduleWithFixedDelay(this::renew, renewEvery, renewEvery, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Hands out a leased key and queues its burn, or returns null when the reservoir
+     * is empty so the caller can fall back to claiming straight from the database.
+     */
+    public UUID take(Integer userId) {
+        takesInFlight.incrementAndGet();
+        try {
+            if (closed || suspended) {
+                return null;
+            }
+            LeasedKey leased;
+            while ((leased = available.poll()) != null) {
+                int remaining = availableCount.decrementAndGet();
+                if (remaining < lowWatermark) {
+                    scheduleRefill();
+                }
+                if (leased.deadlineNanos - System.nanoTime() > 0) {
+                    pendingBurns.add(new PendingBurn(leased, userId));
+                    return leased.key;
+                }
+                // Our lease may have lapsed in the database, so the key is left for whoever claims it next.
+            }
+            scheduleRefill();
+            return null;
+        } finally {
+            takesInFlight.decrementAndGet();
+        }
+    }
+
+    private void scheduleRefill() {
+        if (!closed && refillScheduled.compareAndSet(false, true)) {
+            maintenance.execute(this::refill);
+        }
+    }
+
+    private void refill() {
+        try {
+            if (availableCount.get() >= lowWatermark) {
+                return;
+            }
+            long leasedAt = System.nanoTime();
+            List<UUID> keys = keyRepository.leaseKeys(nodeId, blockSize, leaseSeconds);
+            long deadline = leasedAt + leaseNanos - safetyMarginNanos;
+            for (UUID key : keys) {
+                available.add(new LeasedKey(key, deadline));
+            }
+            availableCount.addAndGet(keys.size());
+            log.debug("Leased {} keys for node {}", keys.size(), nodeId);
+        } catch (RuntimeException e) {
+            log.warn("Could not lease keys for node {}", nodeId, e);
+        } finally {
+            refillScheduled.set(false);
+        }
+    }
+
+    private void renew() {
+        try {
+            long renewedAt = System.nanoTime();
+            keyRepository.renewLeases(nodeId, leaseSeconds);
+            long deadline = renewedAt + leaseNanos - safetyMarginNanos;
+            for (LeasedKey leased : available) {
+                extend(leased, renewedAt, deadline);
+            }
+            // Handed out but not yet recorded, so still leased in the database.
+            for (PendingBurn pending : pendingBurns) {
+                extend(pending.leased, renewedAt, deadline);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not renew key leases for node {}", nodeId, e);
+        }
+    }
+
+    private static void extend(LeasedKey leased, long renewedAt, long deadline) {
+        // Keys that already lapsed locally were not renewed in the database either.
+        if (leased.deadlineNanos - renewedAt > 0) {
+            leased.deadlineNanos = deadline;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+            if (suspended) {
+                suspended = false;
+                log.info("Node {} recorded its pending burns and serves from the reservoir again", nodeId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not record burned keys for node {}", nodeId, e);
+            if (!suspended && oldestBurnAtRisk()) {
+                // Past this point another node may claim a key we handed out, so stop adding to it.
+                suspended = true;
+                log.error("Node {} stops serving from the reservoir: {} burns are near the end of their lease",
+                        nodeId, pendingBurns.size());
+            }
+        }
+    }
+
+    // Deadlines already leave the safety margin, so a passed one means the lease is nearly over.
+    private boolean oldestBurnAtRisk() {
+        long now = System.nanoTime();
+        for (PendingBurn pending : pendingBurns) {
+            if (pending.leased.deadlineNanos - now <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void flush() {
+        List<PendingBurn> batch = new ArrayList<>(blockSize);
+        PendingBurn burn;
+        while (!pendingBurns.isEmpty()) {
+            batch.clear();
+            while (batch.size() < blockSize && (burn = pendingBurns.poll()) != null) {
+                batch.add(burn);
+            }
+            List<UUID> keys = new ArrayList<>(batch.size());
+            List<Integer> userIds = new ArrayList<>(batch.size());
+            for (PendingBurn pending : batch) {
+                keys.add(pending.leased.key);
+                userIds.add(pending.userId);
+            }
+            int[] updated;
+            try {
+                updated = keyRepository.burnLeasedKeys(nodeId, keys, userIds);
+            } catch (RuntimeException e) {
+                // Put the batch back so the next flush retries it.
+                pendingBurns.addAll(batch);
+                throw e;
+            }
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    log.error("Key {} handed to user {} was no longer leased by node {}",
+                            keys.get(i), userIds.get(i), nodeId);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        closed = true;
+        // A take that got past the closed check must queue its burn before the final flush,
+        // or releaseLeases would free a key that was already handed out.
+        while (takesInFlight.get() > 0) {
+            Thread.onSpinWait();
+        }
+        maintenance.shutdown();
+        maintenance.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+        available.clear();
+        int released = keyRepository.releaseLeases(nodeId);
+        log.info("Node {} released {} leased keys", nodeId, released);
+    }
+
+    private static final class LeasedKey {
+        final UUID key;
+        volatile long deadlineNanos;
+
+        LeasedKey(UUID key, long deadlineNanos) {
+            this.key = key;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    private record PendingBurn(LeasedKey leased, Integer userId) {
+    }
+}
@@ -1,24 +1,142 @@
 package com.dema.riceKrispies.service;
 
 import com.dema.riceKrispies.dto.FetchKeyResponse;
-import com.dema.riceKrispies.model.AKeyModel;
+import com.dema.riceKrispies.dto.FetchKeysResponse;
+import com.dema.riceKrispies.exception.ServiceBusyException;
+import com.dema.riceKrispies.exception.SoldOutException;
 import com.dema.riceKrispies.repository.AKeyRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 public class KeyService {
     private final AKeyRepository keyRepository;
+    private final Optional<KeyReservoir> keyReservoir;
+    private final Optional<KeyClaimBatcher> keyClaimBatcher;
+    private final KeyInventory keyInventory;
+    private final UserKeyQuota userKeyQuota;
+    private final IdempotentFetches idempotentFetches;
+    private final OperationTimers operationTimers;
+    private final Optional<BurnJournal> burnJournal;
+
+    @Value("${keys.bulk.max-count:100}")
+    private int maxBulkCount;
+
+    /**
+     * Same as {@link #fetchAndBurnKey(Integer, String)}, but a repeated {@code idempotencyKey}
+     * gets the first call's key back instead of burning another one. {@code beforeClaim} runs
+     * only when a key is actually claimed, so a replayed retry is never charged for it.
+     */
+    public FetchKeyResponse fetchAndBurnKey(Integer userId, String clientIp, String idempotencyKey,
+                                            Runnable beforeClaim) {
+        if (idempotencyKey == null) {
+            beforeClaim.run();
+            return fetchAndBurnKey(userId, clientIp);
+        }
+        return idempotentFetches.fetch(userId, idempotencyKey, () -> {
+            beforeClaim.run();
+            return fetchAndBurnKey(userId, clientIp);
+        });
+    }
+
+    public FetchKeyResponse fetchAndBurnKey(Integer userId, String clientIp) {
+        long start = System.nanoTime();
+        try {
+            return burnOne(userId, clientIp);
+        } finally {
+            operationTimers.getFetchKey().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private FetchKeyResponse burnOne(Integer userId, String clientIp) {
+        if (keyInventory.isSoldOut()) {
+            throw new SoldOutException();
+        }
+        userKeyQuota.reserve(userId, 1);
+        UUID key;
+        long claimStart = System.nanoTime();
+        try {
+            key = claimOne(userId);
+        } catch (RuntimeException e) {
+            userKeyQuota.release(userId, 1);
+            throw e;
+        } finally {
+            RequestTimings.record(RequestTimings.Phase.CLAIM, claimStart);
+        }
+        keyInventory.recordBurned(1);
+        if (burnJournal.isPresent()) {
+            burnJournal.get().append(key, userId, clientIp);
+        }
+        return FetchKeyResponse.of(key, userId);
+    }
+
+    private UUID claimOne(Integer userId) {
+        UUID key = keyReservoir.isPresent() ? keyReservoir.get().take(userId) : null;
+        if (key != null) {
+            return key;
+        }
+        key = keyClaimBatcher.isPresent()
+                ? keyClaimBatcher.get().claim(userId)
+                : keyRepository.claimNextKey(userId).orElse(null);
+        if (key == null) {
+            throw nothingClaimed();
+        }
+        return key;
+    }
+
+    // Keys that were locked or leased elsewhere are still for sale, so that is a retry, not a 410.
+    private RuntimeException nothingClaimed() {
+        return keyInventory.confirmSoldOut() ? new SoldOutException() : new ServiceBusyException();
+    }
+
+    public void validateBulkCount(Integer count) {
+        if (count == null || count < 1 || count > maxBulkCount) {
+            throw new IllegalArgumentException("invalid request");
+        }
+    }
+
+    public FetchKeysResponse fetchAndBurnKeys(Integer userId, Integer count, String clientIp) {
+        validateBulkCount(count);
+        long start = System.nanoTime();
+        try {
+            return burnMany(userId, count, clientIp);
+        } finally {
+            operationTimers.getFetchKeys().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
 
-    @Transactional
-    public FetchKeyResponse fetchAndBurnKey(Integer userId) {
-        AKeyModel key = keyRepository.findFirstByBurnedFalse()
-                .orElseThrow(() -> new RuntimeException("No available keys"));
-        key.setBurned(true);
-        key.setBurnedBy(userId);
-        keyRepository.save(key);
-        return new FetchKeyResponse(key.getKey(), userId);
+    private FetchKeysResponse burnMany(Integer userId, int count, String clientIp) {
+        if (keyInventory.isSoldOut()) {
+            throw new SoldOutException();
+        }
+        userKeyQuota.reserve(userId, count);
+        List<UUID> keys;
+        long claimStart = System.nanoTime();
+        try {
+            keys = keyRepository.claimKeys(userId, count);
+        } catch (RuntimeException e) {
+            userKeyQuota.release(userId, count);
+            throw e;
+        } finally {
+            RequestTimings.record(RequestTimings.Phase.CLAIM, claimStart);
+        }
+        userKeyQuota.release(userId, count - keys.size());
+        if (keys.isEmpty()) {
+            throw nothingClaimed();
+        }
+        keyInventory.recordBurned(keys.size());
+        if (burnJournal.isPresent()) {
+            for (UUID key : keys) {
+                burnJournal.get().append(key, userId, clientIp);
+            }
+        }
+        return FetchKeysResponse.of(keys, userId);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,94 @@
+package com.dema.riceKrispies.service;
+
+import com.dema.riceKrispies.model.ProductKeys;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Converts key columns created before keys were stored as uuids. Hibernate's update mode
+ * never changes an existing column's type, so an older database still has varchar keys;
+ * each such column is rewritten in place with the same encoding as {@link ProductKeys},
+ * which also rebuilds the primary key and the partial indexes from schema.sql.
+ * Runs once at startup, before anything can lease or claim keys. Nodes starting together
+ * serialize on an advisory lock, and whoever gets it second finds nothing left to convert.
+ */
+@Slf4j
+@Component
+@DependsOnDatabaseInitialization
+public class KeyStorageMigration {
+    private static final List<String> TABLES = List.of("all_keys", "burned_keys");
+    // Arbitrary, fixed across nodes: "ricekeys" in ASCII.
+    private static final long MIGRATION_LOCK = 0x726963656b657973L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public KeyStorageMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    void migrate() {
+        if (TABLES.stream().noneMatch(this::hasTextKeys)) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + MIGRATION_LOCK + ")");
+            // Another node may have converted the columns while this one waited for the lock.
+            List<String> pending = TABLES.stream().filter(this::hasTextKeys).toList();
+            if (pending.isEmpty()) {
+                return;
+            }
+            createConversionFunctions();
+            for (String table : pending) {
+                convert(table);
+            }
+            jdbcTemplate.execute("DROP FUNCTION pg_temp.product_key_uuid(text)");
+            jdbcTemplate.execute("DROP FUNCTION pg_temp.product_key_half(text)");
+        });
+    }
+
+    private boolean hasTextKeys(String table) {
+        List<String> types = jdbcTemplate.queryForList("""
+                SELECT data_type FROM information_schema.columns
+                WHERE table_schema = current_schema() AND table_name = ? AND column_name = 'key'
+                """, String.class, table);
+        return !types.isEmpty() && !"uuid".equals(types.get(0));
+    }
+
+    private void convert(String table) {
+        Long malformed = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM " + table + " WHERE key !~ '^[A-Z0-9]{4}(-[A-Z0-9]{4}){3}$'", Long.class);
+        if (malformed != null && malformed > 0) {
+            throw new IllegalStateException(table + " has " + malformed + " keys that are not XXXX-XXXX-XXXX-XXXX; fix them before starting");
+        }
+        long started = System.nanoTime();
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN key TYPE uuid USING pg_temp.product_key_uuid(key)");
+        log.info("Converted {} keys to uuid in {} ms", table, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // Same layout as ProductKeys.parse: each 8-digit base-36 half becomes one 64-bit half of the uuid.
+    private void createConversionFunctions() {
+        jdbcTemplate.execute("""
+                CREATE FUNCTION pg_temp.product_key_half(half text) RETURNS bigint LANGUAGE sql IMMUTABLE AS $$
+                    SELECT sum((strpos('0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ', substr(half, i, 1)) - 1)
+                               * power(36::numeric, 8 - i))::bigint
+                    FROM generate_series(1, 8) AS i
+                $$
+                """);
+        jdbcTemplate.execute("""
+                CREATE FUNCTION pg_temp.product_key_uuid(key text) RETURNS uuid LANGUAGE sql IMMUTABLE AS $$
+                    SELECT CAST(lpad(to_hex(pg_temp.product_key_half(substr(replace(key, '-', ''), 1, 8))), 16, '0')
+                                || lpad(to_hex(pg_temp.product_key_half(substr(replace(key, '-', ''), 9, 8))), 16, '0') AS uuid)
+                $$
+                """);
+    }
+}
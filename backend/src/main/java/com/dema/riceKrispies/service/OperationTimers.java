@@ -0,0 +1,37 @@
+package com.dema.riceKrispies.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Latency timers for the request-path operations, registered once so recording one is
+ * a couple of atomic adds. Histogram buckets are switched on per meter name under
+ * management.metrics.distribution, which is where Prometheus percentiles come from.
+ */
+@Getter
+@Component
+public class OperationTimers {
+    private final Timer fetchKey;
+    private final Timer fetchKeys;
+    private final Timer login;
+    private final Timer register;
+
+    public OperationTimers(MeterRegistry meterRegistry) {
+        this.fetchKey = Timer.builder("keys.fetch")
+                .description("Time to claim and burn keys for a user")
+                .tag("mode", "single")
+                .register(meterRegistry);
+        this.fetchKeys = Timer.builder("keys.fetch")
+                .description("Time to claim and burn keys for a user")
+                .tag("mode", "bulk")
+                .register(meterRegistry);
+        this.login = Timer.builder("users.login")
+                .description("Time to check credentials and issue a token, including BCrypt")
+                .register(meterRegistry);
+        this.register = Timer.builder("users.register")
+                .description("Time to create an account, including BCrypt")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,124 @@
+package com.dema.riceKrispies.service;
+
+import com.dema.riceKrispies.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt on a fixed pool sized to the cores, so a burst of logins cannot take
+ * every request thread and CPU away from key fetches. Work that cannot start within
+ * the queue-wait deadline, or that finds the queue full, is rejected with
+ * {@link ServiceBusyException} (503) rather than left to pile up. The pool stays on
+ * platform threads in virtual-thread mode: its size is what bounds hashing CPU.
+ */
+@Service
+public class PasswordHashingService {
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final long maxWaitNanos;
+    private final ThreadPoolExecutor pool;
+    private final Timer queueWait;
+    private final Counter rejected;
+    private final Timer encodeTime;
+    private final Timer matchTime;
+
+    public PasswordHashingService(BCryptPasswordEncoder passwordEncoder,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${security.bcrypt.threads:0}") int threads,
+                                  @Value("${security.bcrypt.queue-capacity:256}") int queueCapacity,
+                                  @Value("${security.bcrypt.max-wait-ms:500}") long maxWaitMillis) {
+        this.passwordEncoder = passwordEncoder;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread t = new Thread(r, "password-hasher-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.queueWait = Timer.builder("security.bcrypt.queue.wait")
+                .description("Time a hashing task waited for a free hasher thread")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("security.bcrypt.rejected")
+                .description("Hashing tasks shed because the queue was full or the wait deadline passed")
+                .register(meterRegistry);
+        this.encodeTime = hashTimer(meterRegistry, "encode");
+        this.matchTime = hashTimer(meterRegistry, "matches");
+    }
+
+    private static Timer hashTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("security.bcrypt.hash")
+                .description("CPU time of one BCrypt computation on a hasher thread")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return run(encodeTime, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchTime, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * True when {@code encodedPassword} was hashed at a lower cost than the one configured now.
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Timer hashTime, Callable<T> work) {
+        long enqueuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = pool.submit(() -> {
+                long waited = System.nanoTime() - enqueuedAt;
+                queueWait.record(waited, TimeUnit.NANOSECONDS);
+                if (waited > maxWaitNanos) {
+                    throw new ServiceBusyException();
+                }
+                return hashTime.recordCallable(work);
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceBusyException();
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ServiceBusyException busy) {
+                rejected.increment();
+                throw busy;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,20 @@
+package com.dema.riceKrispies.service;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Token buckets shared by every node. Times are epoch microseconds.
+ */
+public interface RateLimitStore {
+    /**
+     * Adds each key's cost to its bucket and returns the time at which each bucket will be
+     * full again. Keys are sorted so concurrent callers lock rows in the same order.
+     */
+    Map<String, Long> charge(String endpoint, SortedMap<String, Long> costs);
+
+    /**
+     * Deletes buckets that have refilled completely and returns how many were removed.
+     */
+    int deleteRefilled();
+}
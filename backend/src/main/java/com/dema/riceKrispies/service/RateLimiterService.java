@@ -1,61 +1,95 @@
 package com.dema.riceKrispies.service;
 
+import com.dema.riceKrispies.config.RateLimitProperties;
+import com.dema.riceKrispies.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Optional;
 
 @Service
 public class RateLimiterService {
-    private static final int REGISTRATION_LIMIT = 5;
-    private static final int LOGIN_LIMIT = 50;
-    private static final int FETCH_KEYS_LIMIT = 50;
-    private static final long WINDOW_MILLIS = 24 * 60 * 60 * 1000L;
+    private final Map<String, Endpoint> endpoints = new HashMap<>();
+    private final Optional<ClusterRateLimiter> clusterRateLimiter;
 
-    private final Map<String, RequestCounter> registrationMap = new ConcurrentHashMap<>();
-    private final Map<String, RequestCounter> loginMap = new ConcurrentHashMap<>();
-    private final Map<String, RequestCounter> fetchKeysMap = new ConcurrentHashMap<>();
+    public RateLimiterService(RateLimitProperties properties,
+                              Optional<ClusterRateLimiter> clusterRateLimiter,
+                              MeterRegistry meterRegistry) {
+        this.clusterRateLimiter = clusterRateLimiter;
+        properties.getEndpoints().forEach((endpoint, limit) -> {
+            TokenBucketLimiter limiter = new TokenBucketLimiter(
+                    limit.getCapacity(), limit.getPeriod(), properties.getMaxTrackedKeys());
+            Gauge.builder("rate_limit.tracked.keys", limiter, TokenBucketLimiter::trackedKeys)
+                    .description("Keys with a partly used bucket in this node's limiter")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry);
+            endpoints.put(endpoint, new Endpoint(limiter,
+                    rejections(meterRegistry, endpoint, "node"), rejections(meterRegistry, endpoint, "cluster")));
+        });
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String endpoint, String limiter) {
+        return Counter.builder("rate_limit.rejected")
+                .description("Requests turned away with 429")
+                .tag("endpoint", endpoint)
+                .tag("limiter", limiter)
+                .register(meterRegistry);
+    }
 
     public void checkRegistration(String ip) {
-        checkLimit(ip, registrationMap, REGISTRATION_LIMIT);
+        checkLimit(RateLimitProperties.REGISTRATION, ip, 1);
     }
 
     public void checkLogin(String ip) {
-        checkLimit(ip, loginMap, LOGIN_LIMIT);
+        checkLimit(RateLimitProperties.LOGIN, ip, 1);
     }
 
-    public void checkFetchKeys(String ip) {
-        checkLimit(ip, fetchKeysMap, FETCH_KEYS_LIMIT);
+    // Fetches are limited per account, so users sharing a NAT do not use up each other's allowance.
+    // The user id itself is the key, so a fetch builds no key string.
+    public void checkFetchKeys(Integer userId) {
+        checkLimit(RateLimitProperties.FETCH_KEYS, userId, 1);
     }
 
-    private void checkLimit(String ip, Map<String, RequestCounter> map, int limit) {
-        long now = Instant.now().toEpochMilli();
-        map.compute(ip, (k, counter) -> {
-            if (counter == null || now - counter.windowStart > WINDOW_MILLIS) {
-                return new RequestCounter(1, now);
-            } else {
-                if (counter.count >= limit) {
-                    throw new RateLimitExceededException();
-                }
-                counter.count++;
-                return counter;
-            }
-        });
+    // Bulk fetches are charged per key, not per call.
+    public void checkFetchKeys(Integer userId, int keys) {
+        checkLimit(RateLimitProperties.FETCH_KEYS, userId, keys);
     }
 
-    private static class RequestCounter {
-        int count;
-        long windowStart;
-        RequestCounter(int count, long windowStart) {
-            this.count = count;
-            this.windowStart = windowStart;
+    private void checkLimit(String endpoint, Object key, int permits) {
+        long start = System.nanoTime();
+        try {
+            check(endpoint, key, permits);
+        } finally {
+            RequestTimings.record(RequestTimings.Phase.RATE_LIMIT, start);
         }
     }
 
-    public static class RateLimitExceededException extends RuntimeException {
-        public RateLimitExceededException() {
-            super("Rate limit exceeded");
+    private void check(String endpoint, Object key, int permits) {
+        Endpoint limits = endpoints.get(endpoint);
+        if (limits == null) {
+            throw new IllegalStateException("no rate limit configured for " + endpoint);
+        }
+        // The node-local bucket always applies, so limits still hold if the shared store is down.
+        if (!limits.limiter.tryAcquire(key, permits)) {
+            limits.nodeRejected.increment();
+            throw new RateLimitExceededException();
         }
+        if (clusterRateLimiter.isPresent() && !clusterRateLimiter.get().tryAcquire(endpoint, key, permits)) {
+            limits.clusterRejected.increment();
+            throw new RateLimitExceededException();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.sweep-interval-ms:60000}")
+    public void sweep() {
+        endpoints.values().forEach(limits -> limits.limiter.sweep());
+    }
+
+    private record Endpoint(TokenBucketLimiter limiter, Counter nodeRejected, Counter clusterRejected) {
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,59 @@
+package com.dema.riceKrispies.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bloom filter of every registered email, filled from the users table at startup and
+ * added to on each registration. A negative answer means the email is free as far as
+ * this node knows, so registration goes straight to hashing and the insert; a positive
+ * one is confirmed with a lookup before the request is turned away. Emails registered on
+ * other nodes since startup read as negative and are caught by the insert itself.
+ */
+@Slf4j
+@Component
+@DependsOnDatabaseInitialization
+public class RegisteredEmails {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final BloomFilter filter;
+
+    public RegisteredEmails(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${users.email-filter.expected-users:1000000}") long expectedUsers,
+                            @Value("${users.email-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.filter = new BloomFilter(expectedUsers, falsePositiveRate);
+    }
+
+    @PostConstruct
+    void load() {
+        long[] count = {0};
+        // pgjdbc only honours the fetch size inside a transaction; in autocommit it buffers every row.
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            var statement = con.prepareStatement("SELECT email FROM users");
+            statement.setFetchSize(10_000);
+            return statement;
+        }, rs -> {
+            filter.put(rs.getString(1));
+            count[0]++;
+        }));
+        log.info("Loaded {} registered emails into a {} KiB filter", count[0], filter.bitSize() / 8 / 1024);
+    }
+
+    public boolean mightBeTaken(String email) {
+        return filter.mightContain(email);
+    }
+
+    public void add(String email) {
+        filter.put(email);
+    }
+}
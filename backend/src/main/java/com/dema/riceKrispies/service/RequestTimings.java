@@ -0,0 +1,147 @@
+package com.dema.riceKrispies.service;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Per-request phase durations, summed from System.nanoTime() reads taken around each
+ * phase. The holder for the current request sits in a thread local between
+ * {@link #open()} and {@link #close(RequestTimings)}; code on other threads (claim dispatchers, the
+ * reservoir) records nothing, and its cost shows up in the caller's wait instead.
+ * Holders are recycled through a small pool; building the header is the only allocation.
+ */
+public final class RequestTimings {
+    public enum Phase {
+        AUTH("auth"),
+        RATE_LIMIT("ratelimit"),
+        DB_ACQUIRE("db-acquire"),
+        CLAIM("claim"),
+        COMMIT("commit"),
+        HANDLER("app"),
+        WRITE("write");
+
+        private final String metricName;
+
+        Phase(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String metricName() {
+            return metricName;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+    private static final BlockingQueue<RequestTimings> POOL = new ArrayBlockingQueue<>(512);
+
+    private final long[] nanos = new long[PHASES.length];
+    private final StringBuilder text = new StringBuilder(128);
+    private long startedAt;
+    private long handledAt;
+    private boolean headerWritten;
+
+    private RequestTimings() {
+    }
+
+    public static RequestTimings open() {
+        RequestTimings timings = POOL.poll();
+        if (timings == null) {
+            timings = new RequestTimings();
+        }
+        timings.reset();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    public static void close(RequestTimings timings) {
+        CURRENT.remove();
+        POOL.offer(timings);
+    }
+
+    public static RequestTimings current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Adds the time since {@code startedAt}, a System.nanoTime() reading, to {@code phase}
+     * of the current request, if there is one.
+     */
+    public static void record(Phase phase, long startedAt) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.nanos[phase.ordinal()] += System.nanoTime() - startedAt;
+        }
+    }
+
+    private void reset() {
+        Arrays.fill(nanos, 0);
+        startedAt = System.nanoTime();
+        handledAt = 0;
+        headerWritten = false;
+    }
+
+    /**
+     * Marks the end of request handling; what follows is response serialization.
+     */
+    public void markHandled() {
+        if (handledAt == 0) {
+            handledAt = System.nanoTime();
+            nanos[Phase.HANDLER.ordinal()] = handledAt - startedAt;
+        }
+    }
+
+    /**
+     * Closes the write phase and returns the whole request's duration.
+     */
+    public long finish() {
+        long now = System.nanoTime();
+        if (handledAt != 0) {
+            nanos[Phase.WRITE.ordinal()] = now - handledAt;
+        } else {
+            nanos[Phase.HANDLER.ordinal()] = now - startedAt;
+        }
+        return now - startedAt;
+    }
+
+    public boolean claimHeader() {
+        if (headerWritten) {
+            return false;
+        }
+        headerWritten = true;
+        return true;
+    }
+
+    /**
+     * Server-Timing value for the phases recorded so far, e.g. {@code auth;dur=0.031, app;dur=4.200}.
+     */
+    public String serverTiming() {
+        text.setLength(0);
+        for (Phase phase : PHASES) {
+            long value = nanos[phase.ordinal()];
+            if (value == 0) {
+                continue;
+            }
+            if (!text.isEmpty()) {
+                text.append(", ");
+            }
+            text.append(phase.metricName).append(";dur=");
+            appendMillis(text, value);
+        }
+        return text.toString();
+    }
+
+    private static void appendMillis(StringBuilder out, long nanos) {
+        long micros = nanos / 1_000;
+        out.append(micros / 1_000).append('.');
+        long fraction = micros % 1_000;
+        if (fraction < 100) {
+            out.append('0');
+        }
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+}
@@ -0,0 +1,108 @@
+package com.dema.riceKrispies.service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket in its GCRA form: the whole state of a key is one long, the time at which
+ * its bucket will be full again. A request costing n tokens pushes that time forward by
+ * n emission intervals and is allowed if it stays within one period of now. Updates are
+ * a CAS on that long, so checking a known key allocates nothing.
+ * <p>
+ * A key whose bucket is full carries no information and is dropped by {@link #sweep()}.
+ * At most {@code maxKeys} keys are tracked; past that, a new key evicts the fullest of a
+ * small sample of existing ones. Keys are compared with equals, so an address string or
+ * a boxed user id can be used as is.
+ */
+public class TokenBucketLimiter {
+    private static final int EVICTION_SAMPLE = 16;
+
+    private final long emissionIntervalNanos;
+    private final long toleranceNanos;
+    private final int capacity;
+    private final int maxKeys;
+    private final LongSupplier nanoClock;
+    private final Map<Object, AtomicLong> fullAt = new ConcurrentHashMap<>();
+
+    public TokenBucketLimiter(int capacity, Duration period, int maxKeys, LongSupplier nanoClock) {
+        this.capacity = capacity;
+        this.emissionIntervalNanos = period.toNanos() / capacity;
+        this.toleranceNanos = emissionIntervalNanos * capacity;
+        this.maxKeys = maxKeys;
+        this.nanoClock = nanoClock;
+    }
+
+    public TokenBucketLimiter(int capacity, Duration period, int maxKeys) {
+        this(capacity, period, maxKeys, System::nanoTime);
+    }
+
+    /**
+     * Takes {@code permits} tokens from {@code key}'s bucket and returns whether there were enough.
+     */
+    public boolean tryAcquire(Object key, int permits) {
+        if (permits > capacity) {
+            return false;
+        }
+        long now = nanoClock.getAsLong();
+        AtomicLong state = fullAt.get(key);
+        if (state == null) {
+            state = track(key, now);
+        }
+        long cost = permits * emissionIntervalNanos;
+        while (true) {
+            long current = state.get();
+            long next = Math.max(current, now) + cost;
+            if (next - now > toleranceNanos) {
+                return false;
+            }
+            if (state.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    private AtomicLong track(Object key, long now) {
+        // Sweeping here would make every new key O(n) during a scan; the scheduled sweep does that.
+        if (fullAt.size() >= maxKeys) {
+            evictOne(now);
+        }
+        return fullAt.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    private void evictOne(long now) {
+        Iterator<Map.Entry<Object, AtomicLong>> it = fullAt.entrySet().iterator();
+        Object victim = null;
+        long earliest = Long.MAX_VALUE;
+        for (int i = 0; i < EVICTION_SAMPLE && it.hasNext(); i++) {
+            Map.Entry<Object, AtomicLong> entry = it.next();
+            long remaining = entry.getValue().get() - now;
+            if (victim == null || remaining < earliest) {
+                victim = entry.getKey();
+                earliest = remaining;
+            }
+        }
+        if (victim != null) {
+            fullAt.remove(victim);
+        }
+    }
+
+    /**
+     * Forgets every key whose bucket has refilled completely.
+     */
+    public void sweep() {
+        sweep(nanoClock.getAsLong());
+    }
+
+    private void sweep(long now) {
+        // A request racing with removal may lose its charge; that only ever errs towards allowing.
+        fullAt.values().removeIf(state -> state.get() - now <= 0);
+    }
+
+    public int trackedKeys() {
+        return fullAt.size();
+    }
+}
@@ -0,0 +1,72 @@
+package com.dema.riceKrispies.service;
+
+import com.dema.riceKrispies.exception.KeyQuotaExceededException;
+import com.dema.riceKrispies.repository.KeyLedgerRepository;
+import com.dema.riceKrispies.repository.UserKeyQuotaRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Enforces keys.max-per-user across nodes. Reservations are counted in user_key_quota,
+ * one row per user updated only while it stays within the limit, so two nodes can never
+ * both hand out a user's last key. Reservations are taken before a claim and handed back
+ * if the claim comes up short. Only users known to be at the limit are cached, which
+ * turns them away without a database round trip; everyone else costs one statement.
+ */
+@Component
+public class UserKeyQuota {
+    private final UserKeyQuotaRepository quotaRepository;
+    private final KeyLedgerRepository keyLedgerRepository;
+    private final int maxPerUser;
+    private final Cache<Integer, Boolean> atLimit;
+
+    public UserKeyQuota(UserKeyQuotaRepository quotaRepository,
+                        KeyLedgerRepository keyLedgerRepository,
+                        @Value("${keys.max-per-user:1}") int maxPerUser,
+                        @Value("${keys.per-user-cache.max-size:100000}") long cacheSize,
+                        @Value("${keys.per-user-cache.ttl:30m}") Duration cacheTtl) {
+        this.quotaRepository = quotaRepository;
+        this.keyLedgerRepository = keyLedgerRepository;
+        this.maxPerUser = maxPerUser;
+        this.atLimit = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    /**
+     * Reserves {@code count} keys for {@code userId} or throws if that would pass the limit.
+     */
+    public void reserve(Integer userId, int count) {
+        if (count > maxPerUser || atLimit.getIfPresent(userId) != null) {
+            throw new KeyQuotaExceededException();
+        }
+        Optional<Integer> reserved = quotaRepository.reserve(userId, count, maxPerUser);
+        if (reserved.isEmpty()) {
+            // A full row may only hold another node's in-flight reservation; cache what the ledger confirms.
+            if (keyLedgerRepository.countByBurnedBy(userId) >= maxPerUser) {
+                atLimit.put(userId, Boolean.TRUE);
+            }
+            throw new KeyQuotaExceededException();
+        }
+        if (reserved.get() >= maxPerUser) {
+            atLimit.put(userId, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Returns reserved keys that were not handed out.
+     */
+    public void release(Integer userId, int count) {
+        if (count <= 0) {
+            return;
+        }
+        quotaRepository.release(userId, count);
+        atLimit.invalidate(userId);
+    }
+}
@@ -1,22 +1,29 @@
 package com.dema.riceKrispies.service;
 
 import com.dema.riceKrispies.dto.*;
+import com.dema.riceKrispies.exception.EmailTakenException;
+import com.dema.riceKrispies.exception.ServiceBusyException;
+import com.dema.riceKrispies.exception.WrongCredentialsException;
 import com.dema.riceKrispies.model.AUserModel;
 import com.dema.riceKrispies.repository.AUserRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserService {
     private final AUserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final JwtUtil jwtUtil;
+    private final RegisteredEmails registeredEmails;
+    private final CredentialCache credentialCache;
+    private final OperationTimers operationTimers;
 
     private static final Pattern PASSWORD_PATTERN = Pattern.compile(
             "^(?=.*[A-Z])(?=.*[!@#$%^&*()_+={}|,.<>/?-]).{8,100}$");
@@ -30,30 +37,70 @@ public class UserService {
         }
     }
 
-    @Transactional
+    // Not transactional: hashing can queue behind other logins and must not hold a pooled connection meanwhile.
     public void register(RegisterRequest request) {
         validateRegistration(request.getEmail(), request.getPassword());
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new RuntimeException("bad request"); // Will be mapped to 409
-        }
-        String hashed = passwordEncoder.encode(request.getPassword());
-        AUserModel user = new AUserModel();
-        user.setEmail(request.getEmail());
-        user.setPassword(hashed);
-        userRepository.save(user);
+        long start = System.nanoTime();
+        try {
+            createAccount(request);
+        } finally {
+            operationTimers.getRegister().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void createAccount(RegisterRequest request) {
+        String email = request.getEmail();
+        // Only a filter hit costs a lookup; free emails skip straight to hashing.
+        if (registeredEmails.mightBeTaken(email) && userRepository.existsByEmail(email)) {
+            throw new EmailTakenException(); // Will be mapped to 409
+        }
+        String hashed = passwordHashingService.encode(request.getPassword());
+        if (userRepository.insertIfAbsent(email, hashed) == 0) {
+            registeredEmails.add(email);
+            throw new EmailTakenException();
+        }
+        registeredEmails.add(email);
+        credentialCache.invalidate(email);
     }
 
     public LoginResponse login(LoginRequest request) {
-        Optional<AUserModel> userOpt = userRepository.findByEmail(request.getEmail());
+        long start = System.nanoTime();
+        try {
+            return authenticate(request);
+        } finally {
+            operationTimers.getLogin().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private LoginResponse authenticate(LoginRequest request) {
+        Optional<CredentialCache.Credentials> userOpt = credentialCache.find(request.getEmail());
         if (userOpt.isEmpty()) {
-            throw new IllegalArgumentException("wrong credentials");
+            throw new WrongCredentialsException();
+        }
+        CredentialCache.Credentials user = userOpt.get();
+        if (!passwordHashingService.matches(request.getPassword(), user.passwordHash())) {
+            throw new WrongCredentialsException();
         }
-        AUserModel user = userOpt.get();
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
-            throw new IllegalArgumentException("wrong credentials");
+        if (passwordHashingService.needsRehash(user.passwordHash())) {
+            rehash(user, request.getPassword());
+        }
+        String token = jwtUtil.generateToken(user.userId(), user.email(), user.admin());
+        return new LoginResponse(user.userId(), token);
+    }
+
+    // The login already succeeded, so a busy hasher only postpones the upgrade to the next one.
+    private void rehash(CredentialCache.Credentials user, String rawPassword) {
+        try {
+            String upgraded = passwordHashingService.encode(rawPassword);
+            if (userRepository.updatePasswordHash(user.userId(), user.passwordHash(), upgraded) == 1) {
+                credentialCache.updateHash(user.email(), upgraded);
+            } else {
+                // The hash changed underneath us; reload it on the next login.
+                credentialCache.invalidate(user.email());
+            }
+        } catch (ServiceBusyException e) {
+            log.debug("Skipped password rehash for user {}, hasher busy", user.userId());
         }
-        String token = jwtUtil.generateToken(user.getUserId(), user.getEmail());
-        return new LoginResponse(user.getUserId(), token);
     }
 
     public Optional<AUserModel> findById(Integer userId) {
@@ -0,0 +1,41 @@
+-- Runs after Hibernate has created/updated the tables (spring.jpa.defer-datasource-initialization).
+-- Every statement must be safe to re-run on each startup.
+
+-- Only unburned keys are ever searched for, so keep the claim index limited to them.
+CREATE INDEX IF NOT EXISTS idx_all_keys_unburned ON all_keys (key) WHERE burned = false;
+
+-- Burned rows only linger until the archiver moves them to burned_keys, so this stays small.
+CREATE INDEX IF NOT EXISTS idx_all_keys_burned ON all_keys (key) WHERE burned = true;
+
+-- Shared token buckets used when rate-limit.cluster.enabled is set. full_at is the epoch
+-- microsecond at which the bucket is full again; rows past it are deleted by the sweeper.
+CREATE TABLE IF NOT EXISTS rate_limits (
+    endpoint varchar(32) NOT NULL,
+    key varchar(64) NOT NULL,
+    full_at bigint NOT NULL,
+    PRIMARY KEY (endpoint, key)
+);
+
+-- Per-user key limits count a user's burned keys; burned_keys has its own burned_by index.
+CREATE INDEX IF NOT EXISTS idx_all_keys_burned_by ON all_keys (burned_by) WHERE burned = true;
+
+-- Results of /fetchKeys/ calls made with an Idempotency-Key header, so a retry gets the same key.
+CREATE TABLE IF NOT EXISTS fetch_idempotency (
+    user_id integer NOT NULL,
+    idempotency_key varchar(64) NOT NULL,
+    key uuid NOT NULL,
+    created_at timestamptz NOT NULL DEFAULT now(),
+    PRIMARY KEY (user_id, idempotency_key)
+);
+CREATE INDEX IF NOT EXISTS idx_fetch_idempotency_created_at ON fetch_idempotency (created_at);
+
+-- Keys reserved or claimed per user, so keys.max-per-user holds across nodes. Rows are
+-- seeded from the ledger on a user's first fetch and only updated while within the limit.
+CREATE TABLE IF NOT EXISTS user_key_quota (
+    user_id integer PRIMARY KEY,
+    claimed integer NOT NULL
+);
+
+-- Admin rights are only ever granted here by an operator (UPDATE users SET is_admin = true
+-- WHERE email = ...); registration cannot set the column.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS is_admin boolean NOT NULL DEFAULT false;
@@ -0,0 +1,88 @@
+package com.dema.riceKrispies;
+
+import com.dema.riceKrispies.service.BurnJournal;
+import com.dema.riceKrispies.service.BurnJournalReader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BurnJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsSurviveRotationInOrder() throws Exception {
+        // Room for ten records per segment, so 25 burns span three files.
+        BurnJournal journal = new BurnJournal(new SimpleMeterRegistry(), directory, "node-a",
+                DataSize.ofBytes(64 + 10 * 48), 64, 4, 0);
+        journal.start();
+        List<UUID> keys = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            UUID key = new UUID(i, i * 31L);
+            keys.add(key);
+            while (!journal.append(key, i, i % 2 == 0 ? "203.0.113.7" : "2001:db8::1")) {
+                Thread.onSpinWait();
+            }
+        }
+        journal.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(3, files.count());
+        }
+        List<BurnJournalReader.Entry> entries = new ArrayList<>();
+        assertEquals(25, BurnJournalReader.read(directory, entries::add));
+        for (int i = 0; i < 25; i++) {
+            BurnJournalReader.Entry entry = entries.get(i);
+            assertEquals(keys.get(i), entry.key());
+            assertEquals(i, entry.userId());
+            assertEquals("node-a", entry.node());
+            assertEquals(i % 2 == 0 ? "203.0.113.7" : "2001:db8:0:0:0:0:0:1", entry.clientIp());
+        }
+    }
+
+    @Test
+    void readingStopsAtATornRecord() throws Exception {
+        BurnJournal journal = new BurnJournal(new SimpleMeterRegistry(), directory, "node-a",
+                DataSize.ofKilobytes(4), 64, 1, 0);
+        journal.start();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(journal.append(UUID.randomUUID(), i, null));
+        }
+        journal.close();
+
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[64 + 48 + 5] ^= 1;
+        Files.write(segment, bytes);
+
+        List<BurnJournalReader.Entry> entries = new ArrayList<>();
+        assertEquals(1, BurnJournalReader.read(directory, entries::add));
+        assertNull(entries.get(0).clientIp());
+    }
+
+    @Test
+    void appendsAfterCloseAreDropped() throws Exception {
+        BurnJournal journal = new BurnJournal(new SimpleMeterRegistry(), directory, "node-a",
+                DataSize.ofKilobytes(4), 64, 1, 0);
+        journal.start();
+        assertTrue(journal.append(UUID.randomUUID(), 1, null));
+        journal.close();
+
+        assertFalse(journal.append(UUID.randomUUID(), 2, null));
+        assertEquals(1, BurnJournalReader.read(directory, entry -> { }));
+    }
+}
@@ -0,0 +1,131 @@
+package com.dema.riceKrispies;
+
+import com.dema.riceKrispies.config.RateLimitProperties;
+import com.dema.riceKrispies.repository.JdbcRateLimitStore;
+import com.dema.riceKrispies.service.ClusterRateLimiter;
+import com.dema.riceKrispies.service.RateLimitStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two limiters sharing one store stand in for two nodes. The Postgres variant runs only
+ * with {@code -Dtest.jdbc.url=... -Dtest.jdbc.user=... -Dtest.jdbc.password=...}.
+ */
+class ClusterRateLimiterTest {
+    private static final String ENDPOINT = RateLimitProperties.FETCH_KEYS;
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000_000L);
+
+    @Test
+    void nodesShareOneAllowance() {
+        assertSharedAllowance(new InMemoryRateLimitStore(now));
+    }
+
+    @Test
+    void unflushedChargesSurviveAStoreOutage() {
+        InMemoryRateLimitStore store = new InMemoryRateLimitStore(now);
+        ClusterRateLimiter node = limiter(store);
+        assertTrue(node.tryAcquire(ENDPOINT, "ip", 3));
+
+        store.down = true;
+        node.flush();
+        store.down = false;
+        node.flush();
+
+        ClusterRateLimiter other = limiter(store);
+        assertTrue(other.tryAcquire(ENDPOINT, "ip", 1));
+        other.flush();
+        assertTrue(other.tryAcquire(ENDPOINT, "ip", 1));
+        assertFalse(other.tryAcquire(ENDPOINT, "ip", 1));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "test.jdbc.url", matches = ".+")
+    void nodesShareOneAllowanceInPostgres() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(System.getProperty("test.jdbc.url"),
+                System.getProperty("test.jdbc.user"), System.getProperty("test.jdbc.password"));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS rate_limits (
+                    endpoint varchar(32) NOT NULL, key varchar(64) NOT NULL, full_at bigint NOT NULL,
+                    PRIMARY KEY (endpoint, key))
+                """);
+        // The database's clock drives this store, so follow it instead of the fake one. It keeps
+        // moving during the test, so run the fake clock a second ahead; otherwise the few
+        // milliseconds it gains make the store's answers look one permit too full.
+        now.set(jdbcTemplate.queryForObject("SELECT (extract(epoch FROM now()) * 1000000)::bigint", Long.class)
+                + 1_000_000);
+        assertSharedAllowance(new JdbcRateLimitStore(jdbcTemplate), "ip-" + UUID.randomUUID());
+    }
+
+    private void assertSharedAllowance(RateLimitStore store) {
+        assertSharedAllowance(store, "ip");
+    }
+
+    private void assertSharedAllowance(RateLimitStore store, String key) {
+        ClusterRateLimiter a = limiter(store);
+        ClusterRateLimiter b = limiter(store);
+
+        assertTrue(a.tryAcquire(ENDPOINT, key, 3));
+        a.flush();
+        assertTrue(b.tryAcquire(ENDPOINT, key, 1));
+        b.flush();
+
+        // b has learned about a's three, so only one of the five is left for it.
+        assertTrue(b.tryAcquire(ENDPOINT, key, 1));
+        assertFalse(b.tryAcquire(ENDPOINT, key, 1));
+        b.flush();
+        // a's view is one flush behind and may admit one more; once it flushes it sees the total.
+        a.tryAcquire(ENDPOINT, key, 1);
+        a.flush();
+        assertFalse(a.tryAcquire(ENDPOINT, key, 1));
+    }
+
+    private ClusterRateLimiter limiter(RateLimitStore store) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setEndpoints(new HashMap<>(Map.of(ENDPOINT, new RateLimitProperties.Limit(5, Duration.ofMinutes(5)))));
+        return new ClusterRateLimiter(store, properties, now::get);
+    }
+
+    private static final class InMemoryRateLimitStore implements RateLimitStore {
+        private final Map<String, Long> fullAt = new ConcurrentHashMap<>();
+        private final AtomicLong clock;
+        volatile boolean down;
+
+        InMemoryRateLimitStore(AtomicLong clock) {
+            this.clock = clock;
+        }
+
+        @Override
+        public Map<String, Long> charge(String endpoint, SortedMap<String, Long> costs) {
+            if (down) {
+                throw new IllegalStateException("store unavailable");
+            }
+            long now = clock.get();
+            Map<String, Long> result = new HashMap<>();
+            costs.forEach((key, cost) -> result.put(key,
+                    fullAt.merge(endpoint + "|" + key, now + cost, (old, added) -> Math.max(old, now) + cost)));
+            return result;
+        }
+
+        @Override
+        public int deleteRefilled() {
+            long now = clock.get();
+            int before = fullAt.size();
+            fullAt.values().removeIf(t -> t < now);
+            return before - fullAt.size();
+        }
+    }
+}
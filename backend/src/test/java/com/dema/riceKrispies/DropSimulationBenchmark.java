@@ -0,0 +1,289 @@
+package com.dema.riceKrispies;
+
+import com.dema.riceKrispies.model.ProductKeys;
+import com.dema.riceKrispies.service.JwtUtil;
+import com.dema.riceKrispies.service.KeyGeneratorService;
+import com.dema.riceKrispies.service.KeyInventory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Simulates a drop: seeds keys and users into a scratch database, then releases every
+ * user's /fetchKeys/ calls at once from virtual threads and checks the outcome against
+ * the database. Reports throughput and latency percentiles to the Extent report. The
+ * test profile recreates the schema, so point it at a database you can throw away:
+ *
+ * <pre>
+ * mvn test -Dtest=DropSimulationBenchmark -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/drop \
+ *     -Dbenchmark.jdbc.user=... -Dbenchmark.jdbc.password=... \
+ *     [-Ddrop.users=5000] [-Ddrop.keys=4000] [-Ddrop.requests-per-user=2] [-Ddrop.concurrency=1000]
+ * </pre>
+ *
+ * At most drop.concurrency requests are in flight, like that many clients each holding
+ * one keep-alive connection; with no bound the client opens a socket per request and the
+ * run measures Tomcat's max-connections backlog rather than the service. Latency is timed
+ * from when a request is sent.
+ *
+ * Any application setting can be switched the same way, e.g. -Dkeys.batch.enabled=true
+ * or -Dspring.threads.virtual.enabled=true, to compare claim paths under the same load.
+ */
+// Logging levels only apply when set this early; the test profile's cors list does not bind to @Value.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "logging.level.com.dema.riceKrispies=INFO",
+        "logging.level.org.springframework.web=INFO",
+        "spring.jpa.show-sql=false",
+        // As in the dev profile; with open-in-view, batched claims starve the pool.
+        "spring.jpa.open-in-view=false",
+        "cors.allowed-origins=http://localhost:5173"
+})
+@ActiveProfiles("test")
+@ExtendWith(ExtentReportsExtension.class)
+@EnabledIfSystemProperty(named = "benchmark.jdbc.url", matches = ".+")
+class DropSimulationBenchmark {
+    private static final int USERS = Integer.getInteger("drop.users", 5_000);
+    private static final int KEYS = Integer.getInteger("drop.keys", 4_000);
+    private static final int REQUESTS_PER_USER = Integer.getInteger("drop.requests-per-user", 2);
+    private static final int CONCURRENCY = Integer.getInteger("drop.concurrency", 1_000);
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("benchmark.jdbc.url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("benchmark.jdbc.user"));
+        registry.add("spring.datasource.password", () -> System.getProperty("benchmark.jdbc.password"));
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private KeyInventory keyInventory;
+
+    @Value("${keys.max-per-user:1}")
+    private int maxPerUser;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void concurrentClaimsNeverDoubleBurn() throws Exception {
+        clearSchemaSqlTables();
+        seedKeys(KEYS);
+        List<Integer> userIds = seedUsers(USERS);
+        keyInventory.reconcile();
+        ExtentReportsExtension.logInfo("Seeded %,d keys and %,d users, %d requests per user, %,d in flight"
+                .formatted(KEYS, USERS, REQUESTS_PER_USER, CONCURRENCY));
+
+        int total = USERS * REQUESTS_PER_USER;
+        long[] latencies = new long[total];
+        Map<UUID, Integer> handedOut = new ConcurrentHashMap<>();
+        Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+        AtomicInteger duplicates = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        List<Future<?>> calls = new ArrayList<>(total);
+
+        HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        long elapsed;
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < total; i++) {
+                int slot = i;
+                Integer userId = userIds.get(i % USERS);
+                HttpRequest request = fetchRequest(userId);
+                calls.add(callers.submit(() -> {
+                    start.await();
+                    HttpResponse<String> response;
+                    inFlight.acquire();
+                    try {
+                        long sent = System.nanoTime();
+                        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        latencies[slot] = System.nanoTime() - sent;
+                    } finally {
+                        inFlight.release();
+                    }
+                    statuses.computeIfAbsent(response.statusCode(), s -> new AtomicInteger()).incrementAndGet();
+                    if (response.statusCode() == 200) {
+                        JsonNode body = objectMapper.readTree(response.body());
+                        UUID key = ProductKeys.parse(body.get("key").asText());
+                        if (handedOut.putIfAbsent(key, body.get("userId").asInt()) != null) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            callers.shutdown();
+            assertTrue(callers.awaitTermination(5, TimeUnit.MINUTES), "drop did not finish within 5 minutes");
+            elapsed = System.nanoTime() - begin;
+        }
+
+        // A request that threw (connection reset, too many open sockets) has no status and no latency.
+        Map<String, Integer> failures = new TreeMap<>();
+        long[] answered = new long[total];
+        int answeredCount = 0;
+        for (int i = 0; i < total; i++) {
+            try {
+                calls.get(i).get();
+                answered[answeredCount++] = latencies[i];
+            } catch (ExecutionException e) {
+                failures.merge(e.getCause().getClass().getSimpleName(), 1, Integer::sum);
+            }
+        }
+
+        report(Arrays.copyOf(answered, answeredCount), total, statuses, failures, handedOut.size(), elapsed);
+
+        assertTrue(failures.isEmpty(), "requests failed without a response: " + failures);
+        assertEquals(0, duplicates.get(), "the same key was returned to more than one request");
+        int allowedPerUser = Math.min(maxPerUser, REQUESTS_PER_USER);
+        assertEquals(Math.min(KEYS, USERS * allowedPerUser), handedOut.size(),
+                "every key should go out while users still have quota left");
+        Map<Integer, Integer> perUser = new HashMap<>();
+        handedOut.values().forEach(userId -> perUser.merge(userId, 1, Integer::sum));
+        assertTrue(perUser.values().stream().allMatch(n -> n <= maxPerUser), "a user received more than keys.max-per-user");
+        assertEquals(0, statuses.getOrDefault(500, new AtomicInteger()).get(), "server errors during the drop");
+
+        Map<UUID, Integer> recorded = awaitRecordedBurns(handedOut.size());
+        assertEquals(0, doubleBurnedKeys(), "a key is burned in both all_keys and burned_keys");
+        handedOut.forEach((key, userId) ->
+                assertEquals(userId, recorded.get(key), "key " + key + " is not recorded as burned by its recipient"));
+        assertEquals(handedOut.size(), recorded.size(), "keys were burned that no response handed out");
+        ExtentReportsExtension.logPass("%,d keys handed out, each burned once and recorded against its recipient"
+                .formatted(handedOut.size()));
+    }
+
+    private HttpRequest fetchRequest(Integer userId) {
+        String token = jwtUtil.generateToken(userId, "drop" + userId + "@example.com");
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/fetchKeys/"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"userId\": " + userId + "}"))
+                .build();
+    }
+
+    // create-drop only recreates Hibernate's tables; these come from schema.sql and outlive a run,
+    // and reseeded users get the same ids, so a previous run's quota rows would still count.
+    private void clearSchemaSqlTables() {
+        jdbcTemplate.execute("TRUNCATE user_key_quota, fetch_idempotency, rate_limits");
+    }
+
+    private void seedKeys(int count) {
+        List<UUID> keys = new KeyGeneratorService().generate(count);
+        jdbcTemplate.batchUpdate("INSERT INTO all_keys (key, burned) VALUES (?, false)", keys, 1_000,
+                (ps, key) -> ps.setObject(1, key));
+    }
+
+    // Accounts are inserted directly with a placeholder hash; the drop authenticates with minted JWTs.
+    private List<Integer> seedUsers(int count) {
+        return jdbcTemplate.queryForList("""
+                INSERT INTO users (email, password_hash, created_at)
+                SELECT 'drop' || g || '@example.com', 'not-a-bcrypt-hash', LOCALTIMESTAMP FROM generate_series(1, ?) g
+                RETURNING user_id
+                """, Integer.class, count);
+    }
+
+    // Reservoir burns reach the database on its next flush, so give them a moment.
+    private Map<UUID, Integer> awaitRecordedBurns(int expected) throws InterruptedException {
+        Map<UUID, Integer> recorded = Map.of();
+        for (int attempt = 0; attempt < 50; attempt++) {
+            recorded = recordedBurns();
+            if (recorded.size() >= expected) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        return recorded;
+    }
+
+    private Map<UUID, Integer> recordedBurns() {
+        Map<UUID, Integer> recorded = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT key, burned_by FROM all_keys WHERE burned = true
+                UNION ALL
+                SELECT key, burned_by FROM burned_keys
+                """, rs -> {
+            recorded.put(rs.getObject(1, UUID.class), (Integer) rs.getObject(2));
+        });
+        return recorded;
+    }
+
+    private long doubleBurnedKeys() {
+        return jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM (
+                    SELECT key FROM (
+                        SELECT key FROM all_keys WHERE burned = true
+                        UNION ALL
+                        SELECT key FROM burned_keys
+                    ) burns GROUP BY key HAVING count(*) > 1
+                ) doubled
+                """, Long.class);
+    }
+
+    // Percentiles cover answered requests only; failed ones are listed as errors instead.
+    private void report(long[] latencies, int total, Map<Integer, AtomicInteger> statuses,
+                        Map<String, Integer> failures, int keysOut, long elapsedNanos) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        double seconds = elapsedNanos / 1e9;
+        Map<Integer, Integer> byStatus = new TreeMap<>();
+        statuses.forEach((status, n) -> byStatus.put(status, n.get()));
+        List<String> lines = new ArrayList<>();
+        lines.add("%,d requests in %.2f s: %,.0f req/s, %,.0f keys/s".formatted(
+                total, seconds, total / seconds, keysOut / seconds));
+        if (sorted.length > 0) {
+            lines.add("latency p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms over %,d answered".formatted(
+                    millis(sorted, 0.50), millis(sorted, 0.95), millis(sorted, 0.99),
+                    sorted[sorted.length - 1] / 1e6, sorted.length));
+        }
+        lines.add("status codes " + byStatus);
+        lines.add("errors " + (failures.isEmpty() ? "none" : failures));
+        lines.forEach(line -> {
+            System.out.println(line);
+            ExtentReportsExtension.logInfo(line);
+        });
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
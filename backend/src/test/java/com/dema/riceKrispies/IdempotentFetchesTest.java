@@ -0,0 +1,120 @@
+package com.dema.riceKrispies;
+
+import com.dema.riceKrispies.dto.FetchKeyResponse;
+import com.dema.riceKrispies.exception.ServiceBusyException;
+import com.dema.riceKrispies.repository.FetchIdempotencyRepository;
+import com.dema.riceKrispies.service.IdempotentFetches;
+import com.dema.riceKrispies.service.KeyGeneratorService;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotentFetchesTest {
+    private final InMemoryIdempotencyRepository repository = new InMemoryIdempotencyRepository();
+    private final IdempotentFetches fetches = new IdempotentFetches(repository, Duration.ofMinutes(10), 1_000);
+    private final KeyGeneratorService keyGenerator = new KeyGeneratorService();
+    private final AtomicInteger claims = new AtomicInteger();
+
+    @Test
+    void concurrentDuplicatesShareOneClaim() throws Exception {
+        int callers = 16;
+        CountDownLatch entered = new CountDownLatch(callers);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<FetchKeyResponse>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    entered.countDown();
+                    return fetches.fetch(7, "retry-1", () -> {
+                        await(release);
+                        return claim(7);
+                    });
+                }));
+            }
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            // Let the duplicates reach the in-flight future before the claim finishes.
+            Thread.sleep(50);
+            release.countDown();
+            FetchKeyResponse first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<FetchKeyResponse> result : results) {
+                assertEquals(first, result.get(5, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(1, claims.get());
+        assertEquals(1, repository.saved.size());
+    }
+
+    @Test
+    void failuresAreForgotten() {
+        assertThrows(ServiceBusyException.class, () -> fetches.fetch(7, "retry-2", () -> {
+            claims.incrementAndGet();
+            throw new ServiceBusyException();
+        }));
+        assertTrue(repository.saved.isEmpty());
+
+        FetchKeyResponse retried = fetches.fetch(7, "retry-2", () -> claim(7));
+        assertEquals(2, claims.get());
+        assertEquals(retried, fetches.fetch(7, "retry-2", () -> claim(7)));
+        assertEquals(2, claims.get());
+    }
+
+    @Test
+    void storedResultsReplayWithoutClaiming() {
+        UUID stored = keyGenerator.generate(1).get(0);
+        repository.saved.put("7|retry-3", stored);
+
+        FetchKeyResponse response = fetches.fetch(7, "retry-3", () -> claim(7));
+        assertEquals(FetchKeyResponse.of(stored, 7), response);
+        assertEquals(0, claims.get());
+    }
+
+    private FetchKeyResponse claim(Integer userId) {
+        claims.incrementAndGet();
+        return FetchKeyResponse.of(keyGenerator.generate(1).get(0), userId);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class InMemoryIdempotencyRepository extends FetchIdempotencyRepository {
+        final Map<String, UUID> saved = new ConcurrentHashMap<>();
+
+        InMemoryIdempotencyRepository() {
+            super(null);
+        }
+
+        @Override
+        public Optional<UUID> findKey(Integer userId, String idempotencyKey, Duration window) {
+            return Optional.ofNullable(saved.get(userId + "|" + idempotencyKey));
+        }
+
+        @Override
+        public void save(Integer userId, String idempotencyKey, UUID key, Duration window) {
+            saved.putIfAbsent(userId + "|" + idempotencyKey, key);
+        }
+
+        @Override
+        public int deleteOlderThan(Duration window) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.dema.riceKrispies;
+
+import com.dema.riceKrispies.security.JwtAuthenticationFilter;
+import com.dema.riceKrispies.security.VerifiedTokenCache;
+import com.dema.riceKrispies.service.JwtUtil;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+
+/**
+ * Measures what JwtAuthenticationFilter costs per request: the old path (a new parser
+ * per request), the shared parser alone, and the filter with the verified-token cache.
+ * Run with {@code mvn test -Dtest=JwtFilterBenchmark -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class JwtFilterBenchmark {
+    private static final String SECRET = "zAHi9DlQ+Vlo2opwSOhvRXP7WS6wTB/VjBK4aGeTZik=";
+    private static final int WARMUP = 50_000;
+    private static final int ITERATIONS = 200_000;
+
+    @Test
+    void filterCostPerRequest() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET);
+        String token = jwtUtil.generateToken(42, "bench@example.com");
+        SecretKey key = (SecretKey) ReflectionTestUtils.getField(jwtUtil, "secretKey");
+
+        double perRequestParser = time(() -> Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token));
+        double sharedParser = time(() -> jwtUtil.validateToken(token));
+
+        // A cache that holds nothing makes the filter verify every token, as it did before.
+        double uncachedFilter = time(filterRun(jwtUtil, token, 0));
+        double cachedFilter = time(filterRun(jwtUtil, token, 1_000));
+
+        System.out.printf("%nJWT filter cost per request (%,d iterations)%n", ITERATIONS);
+        System.out.printf("%-32s %10.2f us%n", "new parser per request", perRequestParser);
+        System.out.printf("%-32s %10.2f us%n", "shared parser", sharedParser);
+        System.out.printf("%-32s %10.2f us%n", "filter, every token verified", uncachedFilter);
+        System.out.printf("%-32s %10.2f us%n", "filter with verified cache", cachedFilter);
+    }
+
+    private static Runnable filterRun(JwtUtil jwtUtil, String token, long cacheSize) {
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "verifiedTokenCache",
+                new VerifiedTokenCache(jwtUtil, new SimpleMeterRegistry(), cacheSize));
+        return () -> {
+            MockHttpServletRequest request = new MockHttpServletRequest("POST", "/fetchKeys/");
+            request.addHeader("Authorization", "Bearer " + token);
+            try {
+                filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            } catch (ServletException | IOException e) {
+                throw new IllegalStateException(e);
+            }
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                throw new IllegalStateException("token was not accepted");
+            }
+            SecurityContextHolder.clearContext();
+        };
+    }
+
+    private static double time(Runnable work) {
+        for (int i = 0; i < WARMUP; i++) {
+            work.run();
+        }
+        long started = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            work.run();
+        }
+        return (System.nanoTime() - started) / 1_000.0 / ITERATIONS;
+    }
+}
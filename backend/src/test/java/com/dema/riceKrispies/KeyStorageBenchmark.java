@@ -0,0 +1,163 @@
+package com.dema.riceKrispies;
+
+import com.dema.riceKrispies.model.ProductKeys;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Compares the old varchar key column with the uuid one: primary key and partial index
+ * size, point lookups by key, and single-key claims. Not part of the normal test run
+ * (surefire does not pick up *Benchmark); run it against a scratch database with
+ *
+ * <pre>
+ * mvn test -Dtest=KeyStorageBenchmark -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/bench \
+ *     -Dbenchmark.jdbc.user=... -Dbenchmark.jdbc.password=... [-Dbenchmark.rows=1000000]
+ * </pre>
+ *
+ * Both tables are temporary, so nothing is left behind.
+ */
+@EnabledIfSystemProperty(named = "benchmark.jdbc.url", matches = ".+")
+class KeyStorageBenchmark {
+    private static final int LOOKUPS = 20_000;
+    private static final int CLAIMS = 5_000;
+
+    @Test
+    void compareVarcharAndUuidKeys() throws SQLException {
+        int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+        List<UUID> keys = randomKeys(rows);
+
+        try (Connection con = DriverManager.getConnection(System.getProperty("benchmark.jdbc.url"),
+                System.getProperty("benchmark.jdbc.user"), System.getProperty("benchmark.jdbc.password"))) {
+            Result before = run(con, "bench_keys_varchar", "varchar(255)", keys, ProductKeys::format);
+            Result after = run(con, "bench_keys_uuid", "uuid", keys, UUID::toString);
+
+            System.out.printf("%n%,d keys%n", rows);
+            System.out.printf("%-26s %14s %14s%n", "", "varchar", "uuid");
+            System.out.printf("%-26s %14s %14s%n", "primary key index", mb(before.pkBytes), mb(after.pkBytes));
+            System.out.printf("%-26s %14s %14s%n", "unburned partial index", mb(before.partialBytes), mb(after.partialBytes));
+            System.out.printf("%-26s %14s %14s%n", "table", mb(before.tableBytes), mb(after.tableBytes));
+            System.out.printf("%-26s %11.1f us %11.1f us%n", "lookup by key", before.lookupMicros, after.lookupMicros);
+            System.out.printf("%-26s %11.1f us %11.1f us%n", "claim one key", before.claimMicros, after.claimMicros);
+        }
+    }
+
+    private static Result run(Connection con, String table, String keyType, List<UUID> keys,
+                              Function<UUID, String> copyText) throws SQLException {
+        try (Statement s = con.createStatement()) {
+            s.execute("CREATE TEMP TABLE " + table + " (key " + keyType + " PRIMARY KEY, burned boolean NOT NULL, burned_by int, burned_at timestamptz)");
+            s.execute("CREATE INDEX " + table + "_unburned ON " + table + " (key) WHERE burned = false");
+        }
+        load(con, table, keys, copyText);
+        try (Statement s = con.createStatement()) {
+            s.execute("ANALYZE " + table);
+        }
+
+        Result result = new Result();
+        result.pkBytes = size(con, "pg_relation_size('" + table + "_pkey')");
+        result.partialBytes = size(con, "pg_relation_size('" + table + "_unburned')");
+        result.tableBytes = size(con, "pg_relation_size('" + table + "')");
+        result.lookupMicros = lookups(con, table, keys, keyType.equals("uuid"));
+        result.claimMicros = claims(con, table);
+        return result;
+    }
+
+    private static void load(Connection con, String table, List<UUID> keys, Function<UUID, String> copyText) throws SQLException {
+        CopyIn copyIn = con.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("COPY " + table + " (key, burned) FROM STDIN");
+        StringBuilder chunk = new StringBuilder(64 * 1024);
+        for (UUID key : keys) {
+            chunk.append(copyText.apply(key)).append("\tf\n");
+            if (chunk.length() > 60 * 1024) {
+                byte[] bytes = chunk.toString().getBytes(StandardCharsets.US_ASCII);
+                copyIn.writeToCopy(bytes, 0, bytes.length);
+                chunk.setLength(0);
+            }
+        }
+        byte[] bytes = chunk.toString().getBytes(StandardCharsets.US_ASCII);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        copyIn.endCopy();
+    }
+
+    private static double lookups(Connection con, String table, List<UUID> keys, boolean uuid) throws SQLException {
+        SecureRandom random = new SecureRandom();
+        try (PreparedStatement ps = con.prepareStatement("SELECT burned FROM " + table + " WHERE key = ?")) {
+            long started = 0;
+            // The first quarter warms the cache and the prepared plan and is not timed.
+            for (int i = -LOOKUPS / 4; i < LOOKUPS; i++) {
+                if (i == 0) {
+                    started = System.nanoTime();
+                }
+                UUID key = keys.get(random.nextInt(keys.size()));
+                if (uuid) {
+                    ps.setObject(1, key);
+                } else {
+                    ps.setString(1, ProductKeys.format(key));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                }
+            }
+            return (System.nanoTime() - started) / 1_000.0 / LOOKUPS;
+        }
+    }
+
+    private static double claims(Connection con, String table) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("""
+                UPDATE %s SET burned = true, burned_by = ?, burned_at = now()
+                WHERE key = (SELECT key FROM %s WHERE burned = false LIMIT 1 FOR UPDATE SKIP LOCKED)
+                RETURNING key
+                """.formatted(table, table))) {
+            long started = System.nanoTime();
+            for (int i = 0; i < CLAIMS; i++) {
+                ps.setInt(1, i);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                }
+            }
+            return (System.nanoTime() - started) / 1_000.0 / CLAIMS;
+        }
+    }
+
+    private static long size(Connection con, String expression) throws SQLException {
+        try (Statement s = con.createStatement(); ResultSet rs = s.executeQuery("SELECT " + expression)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static List<UUID> randomKeys(int count) {
+        SecureRandom random = new SecureRandom();
+        List<UUID> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add(new UUID(random.nextLong(ProductKeys.HALF_BOUND), random.nextLong(ProductKeys.HALF_BOUND)));
+        }
+        return keys;
+    }
+
+    private static String mb(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    private static final class Result {
+        long pkBytes;
+        long partialBytes;
+        long tableBytes;
+        double lookupMicros;
+        double claimMicros;
+    }
+}
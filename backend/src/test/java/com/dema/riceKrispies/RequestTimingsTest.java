@@ -0,0 +1,41 @@
+package com.dema.riceKrispies;
+
+import com.dema.riceKrispies.service.RequestTimings;
+import com.dema.riceKrispies.service.RequestTimings.Phase;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTimingsTest {
+
+    @Test
+    void onlyRecordedPhasesAppearInTheHeader() {
+        RequestTimings timings = RequestTimings.open();
+        try {
+            RequestTimings.record(Phase.AUTH, System.nanoTime() - 1_234_000);
+            RequestTimings.record(Phase.CLAIM, System.nanoTime() - 5_000);
+            timings.markHandled();
+            String header = timings.serverTiming();
+            assertTrue(header.matches("auth;dur=1\\.2\\d\\d, claim;dur=0\\.0\\d\\d, app;dur=\\d+\\.\\d{3}"), header);
+        } finally {
+            RequestTimings.close(timings);
+        }
+    }
+
+    @Test
+    void recycledHoldersStartEmpty() {
+        RequestTimings first = RequestTimings.open();
+        RequestTimings.record(Phase.RATE_LIMIT, System.nanoTime() - 1_000_000);
+        RequestTimings.close(first);
+
+        RequestTimings second = RequestTimings.open();
+        try {
+            assertEquals("", second.serverTiming());
+            assertTrue(second.claimHeader());
+            assertFalse(second.claimHeader());
+        } finally {
+            RequestTimings.close(second);
+        }
+        assertNull(RequestTimings.current());
+    }
+}
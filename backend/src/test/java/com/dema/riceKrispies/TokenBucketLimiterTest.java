@@ -0,0 +1,69 @@
+package com.dema.riceKrispies;
+
+import com.dema.riceKrispies.service.TokenBucketLimiter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketLimiterTest {
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    private TokenBucketLimiter limiter(int capacity, Duration period, int maxKeys) {
+        return new TokenBucketLimiter(capacity, period, maxKeys, now::get);
+    }
+
+    @Test
+    void allowsABurstUpToCapacityThenRejects() {
+        TokenBucketLimiter limiter = limiter(5, Duration.ofMinutes(5), 100);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire("10.0.0.1", 1));
+        }
+        assertFalse(limiter.tryAcquire("10.0.0.1", 1));
+        assertTrue(limiter.tryAcquire("10.0.0.2", 1));
+    }
+
+    @Test
+    void refillsOneTokenPerEmissionInterval() {
+        TokenBucketLimiter limiter = limiter(5, Duration.ofMinutes(5), 100);
+        assertTrue(limiter.tryAcquire("ip", 5));
+        assertFalse(limiter.tryAcquire("ip", 1));
+
+        now.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertTrue(limiter.tryAcquire("ip", 1));
+        assertFalse(limiter.tryAcquire("ip", 1));
+    }
+
+    @Test
+    void chargesBulkRequestsPerPermit() {
+        TokenBucketLimiter limiter = limiter(5, Duration.ofMinutes(5), 100);
+        assertFalse(limiter.tryAcquire("ip", 6));
+        assertTrue(limiter.tryAcquire("ip", 3));
+        assertFalse(limiter.tryAcquire("ip", 3));
+        assertTrue(limiter.tryAcquire("ip", 2));
+    }
+
+    @Test
+    void sweepDropsOnlyRefilledKeys() {
+        TokenBucketLimiter limiter = limiter(5, Duration.ofMinutes(5), 100);
+        limiter.tryAcquire("idle", 1);
+        now.addAndGet(Duration.ofMinutes(2).toNanos());
+        limiter.tryAcquire("busy", 5);
+
+        limiter.sweep();
+
+        assertEquals(1, limiter.trackedKeys());
+        assertFalse(limiter.tryAcquire("busy", 1));
+    }
+
+    @Test
+    void neverTracksMoreThanMaxKeys() {
+        TokenBucketLimiter limiter = limiter(5, Duration.ofMinutes(5), 50);
+        for (int i = 0; i < 10_000; i++) {
+            limiter.tryAcquire("10.0." + (i / 256) + "." + (i % 256), 1);
+        }
+        assertTrue(limiter.trackedKeys() <= 50);
+    }
+}